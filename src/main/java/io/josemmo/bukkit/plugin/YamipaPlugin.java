@@ -3,6 +3,8 @@ package io.josemmo.bukkit.plugin;
 import io.josemmo.bukkit.plugin.commands.ImageCommandBridge;
 import io.josemmo.bukkit.plugin.renderer.*;
 import io.josemmo.bukkit.plugin.storage.ImageStorage;
+import io.josemmo.bukkit.plugin.storage.RenderQueue;
+import io.josemmo.bukkit.plugin.utils.InstrumentedExecutor;
 import io.josemmo.bukkit.plugin.utils.Logger;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
@@ -14,19 +16,25 @@ import org.jetbrains.annotations.Nullable;
 import java.awt.Color;
 import java.nio.file.Path;
 import java.util.Objects;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 public class YamipaPlugin extends JavaPlugin {
     public static final int BSTATS_PLUGIN_ID = 10243;
     private static final Logger LOGGER = Logger.getLogger();
+    private static final int IO_SHUTDOWN_TIMEOUT = 10; // In seconds
     private static @Nullable YamipaPlugin INSTANCE;
     private boolean verbose;
     private @Nullable ImageStorage storage;
+    private @Nullable PacketScheduler packetScheduler;
+    private @Nullable AnimationThrottle animationThrottle;
+    private @Nullable AnimationClock animationClock;
     private @Nullable ImageRenderer renderer;
     private @Nullable ItemService itemService;
-    private @Nullable ScheduledExecutorService scheduler;
+    private @Nullable InstrumentedExecutor ioExecutor;
+    private @Nullable InstrumentedExecutor renderExecutor;
+    private @Nullable InstrumentedExecutor movementExecutor;
+    private @Nullable RenderQueue renderQueue;
     private @Nullable Metrics metrics;
 
     /**
@@ -38,6 +46,14 @@ public class YamipaPlugin extends JavaPlugin {
         return INSTANCE;
     }
 
+    /**
+     * Is plugin running
+     * @return Whether plugin instance is available
+     */
+    public static boolean isRunning() {
+        return INSTANCE != null;
+    }
+
     /**
      * Get image storage instance
      * @return Image storage instance
@@ -47,6 +63,33 @@ public class YamipaPlugin extends JavaPlugin {
         return storage;
     }
 
+    /**
+     * Get packet scheduler instance
+     * @return Packet scheduler instance
+     */
+    public @NotNull PacketScheduler getPacketScheduler() {
+        Objects.requireNonNull(packetScheduler, "Cannot get packet scheduler instance if plugin is not running");
+        return packetScheduler;
+    }
+
+    /**
+     * Get animation throttle instance
+     * @return Animation throttle instance
+     */
+    public @NotNull AnimationThrottle getAnimationThrottle() {
+        Objects.requireNonNull(animationThrottle, "Cannot get animation throttle instance if plugin is not running");
+        return animationThrottle;
+    }
+
+    /**
+     * Get animation clock instance
+     * @return Animation clock instance
+     */
+    public @NotNull AnimationClock getAnimationClock() {
+        Objects.requireNonNull(animationClock, "Cannot get animation clock instance if plugin is not running");
+        return animationClock;
+    }
+
     /**
      * Get image renderer instance
      * @return Image renderer instance
@@ -57,12 +100,39 @@ public class YamipaPlugin extends JavaPlugin {
     }
 
     /**
-     * Get internal tasks scheduler
-     * @return Tasks scheduler
+     * Get executor for disk I/O tasks
+     * @return I/O executor
+     */
+    public @NotNull InstrumentedExecutor getIoExecutor() {
+        Objects.requireNonNull(ioExecutor, "Cannot get I/O executor instance if plugin is not running");
+        return ioExecutor;
+    }
+
+    /**
+     * Get render queue
+     * @return Render queue instance
+     */
+    public @NotNull RenderQueue getRenderQueue() {
+        Objects.requireNonNull(renderQueue, "Cannot get render queue instance if plugin is not running");
+        return renderQueue;
+    }
+
+    /**
+     * Get executor for CPU-intensive rendering tasks
+     * @return Render executor
      */
-    public @NotNull ScheduledExecutorService getScheduler() {
-        Objects.requireNonNull(scheduler, "Cannot get scheduler instance if plugin is not running");
-        return scheduler;
+    public @NotNull InstrumentedExecutor getRenderExecutor() {
+        Objects.requireNonNull(renderExecutor, "Cannot get render executor instance if plugin is not running");
+        return renderExecutor;
+    }
+
+    /**
+     * Get executor for processing player movements
+     * @return Movement executor
+     */
+    public @NotNull InstrumentedExecutor getMovementExecutor() {
+        Objects.requireNonNull(movementExecutor, "Cannot get movement executor instance if plugin is not running");
+        return movementExecutor;
     }
 
     /**
@@ -108,20 +178,84 @@ public class YamipaPlugin extends JavaPlugin {
             LOGGER.severe("Failed to initialize image storage", e);
         }
 
+        // Create thread pools
+        boolean useVirtualThreads = getConfig().getBoolean("use-virtual-threads", false);
+        ioExecutor = InstrumentedExecutor.create(
+            "io",
+            getConfig().getInt("io-threads", 2),
+            getConfig().getInt("io-queue-size", 0),
+            useVirtualThreads
+        );
+        renderExecutor = InstrumentedExecutor.create(
+            "render",
+            getConfig().getInt("render-threads", 4),
+            getConfig().getInt("render-queue-size", 0),
+            false // Rendering is CPU-bound, virtual threads would not help
+        );
+        movementExecutor = InstrumentedExecutor.create(
+            "movement",
+            1, // Player movements must be processed in order
+            0,
+            false
+        );
+
+        // Create render queue
+        int maxConcurrentRenders = getConfig().getInt("max-concurrent-renders", 2);
+        long maxRenderMemory = getConfig().getLong("max-render-memory", 512) * 1024 * 1024;
+        renderQueue = new RenderQueue(maxConcurrentRenders, maxRenderMemory, ioExecutor, renderExecutor);
+
+        // Create packet scheduler
+        int maxBytesPerTick = getConfig().getInt("max-bytes-per-tick", 262144);
+        int maxBundlePackets = getConfig().getInt("max-bundle-packets", PacketScheduler.MAX_BUNDLE_PACKETS);
+        int maxBundleBytes = getConfig().getInt("max-bundle-bytes", 1048576);
+        int spawnRowsPerTick = getConfig().getInt("spawn-rows-per-tick", 0);
+        packetScheduler = new PacketScheduler(maxBytesPerTick, maxBundlePackets, maxBundleBytes, spawnRowsPerTick);
+        packetScheduler.start();
+
+        // Create animation throttle
+        double throttleTickTime = getConfig().getDouble("throttle-tick-time", 45);
+        animationThrottle = new AnimationThrottle(throttleTickTime);
+        animationThrottle.start();
+
+        // Create animation clock
+        animationClock = new AnimationClock();
+        animationClock.start();
+
         // Create image renderer
         boolean animateImages = getConfig().getBoolean("animate-images", true);
         LOGGER.info(animateImages ? "Enabled image animation support" : "Image animation support is disabled");
+        boolean deltaAnimations = getConfig().getBoolean("delta-animations", false);
+        boolean syncAnimations = getConfig().getBoolean("sync-animations", false);
         int maxImageDimension = getConfig().getInt("max-image-dimension", 30);
-        renderer = new ImageRenderer(basePath.resolve(dataPath), animateImages, maxImageDimension);
+        int fullAnimationDistance = getConfig().getInt("full-animation-distance", 48);
+        int reducedAnimationDistance = getConfig().getInt("reduced-animation-distance", 96);
+        int reducedAnimationRate = getConfig().getInt("reduced-animation-rate", 4);
+        boolean cullHiddenImages = getConfig().getBoolean("cull-hidden-images", false);
+        int despawnMargin = getConfig().getInt("despawn-margin", 0);
+        long despawnDelay = getConfig().getLong("despawn-delay", 0) * 1000;
+        long prefetchTime = getConfig().getLong("prefetch-time", 0) * 1000;
+        int tileSpawnDistance = getConfig().getInt("tile-spawn-distance", 0);
+        renderer = new ImageRenderer(
+            basePath.resolve(dataPath),
+            animateImages,
+            deltaAnimations,
+            syncAnimations,
+            maxImageDimension,
+            fullAnimationDistance,
+            reducedAnimationDistance,
+            reducedAnimationRate,
+            cullHiddenImages,
+            despawnMargin,
+            despawnDelay,
+            prefetchTime,
+            tileSpawnDistance
+        );
         renderer.start();
 
         // Create image item service
         itemService = new ItemService();
         itemService.start();
 
-        // Create thread pool
-        scheduler = Executors.newScheduledThreadPool(6);
-
         // Warm-up plugin dependencies
         LOGGER.fine("Triggered map color cache warm-up");
         FakeMap.pixelToIndex(Color.RED.getRGB()); // Ask for a color index to force cache generation
@@ -161,16 +295,58 @@ public class YamipaPlugin extends JavaPlugin {
             renderer = null;
         }
 
+        // Stop animation clock
+        if (animationClock != null) {
+            animationClock.stop();
+            animationClock = null;
+        }
+
+        // Stop animation throttle
+        if (animationThrottle != null) {
+            animationThrottle.stop();
+            animationThrottle = null;
+        }
+
+        // Stop packet scheduler
+        if (packetScheduler != null) {
+            packetScheduler.stop();
+            packetScheduler = null;
+        }
+
         // Stop image storage
         if (storage != null) {
             storage.stop();
             storage = null;
         }
 
-        // Stop internal scheduler
-        if (scheduler != null) {
-            scheduler.shutdownNow();
-            scheduler = null;
+        // Stop render queue
+        if (renderQueue != null) {
+            renderQueue.stop();
+            renderQueue = null;
+        }
+
+        // Stop thread pools
+        if (movementExecutor != null) {
+            movementExecutor.shutdownNow();
+            movementExecutor = null;
+        }
+        if (renderExecutor != null) {
+            renderExecutor.shutdownNow();
+            renderExecutor = null;
+        }
+        if (ioExecutor != null) {
+            // Let queued writes to disk finish, otherwise cache files would need to be rendered again
+            ioExecutor.shutdown();
+            try {
+                if (!ioExecutor.awaitTermination(IO_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    LOGGER.warning("Timed out waiting for I/O tasks to finish, some cache files may be missing");
+                    ioExecutor.shutdownNow();
+                }
+            } catch (InterruptedException __) {
+                ioExecutor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            ioExecutor = null;
         }
 
         // Remove Bukkit listeners and tasks
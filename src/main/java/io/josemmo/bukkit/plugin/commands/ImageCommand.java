@@ -1,11 +1,14 @@
 package io.josemmo.bukkit.plugin.commands;
 
 import io.josemmo.bukkit.plugin.YamipaPlugin;
+import io.josemmo.bukkit.plugin.renderer.AnimationThrottle;
 import io.josemmo.bukkit.plugin.renderer.FakeImage;
 import io.josemmo.bukkit.plugin.renderer.ImageRenderer;
 import io.josemmo.bukkit.plugin.renderer.ItemService;
 import io.josemmo.bukkit.plugin.storage.ImageFile;
 import io.josemmo.bukkit.plugin.storage.ImageStorage;
+import io.josemmo.bukkit.plugin.storage.RenderQueue;
+import io.josemmo.bukkit.plugin.utils.InstrumentedExecutor;
 import io.josemmo.bukkit.plugin.utils.Logger;
 import io.josemmo.bukkit.plugin.utils.Permissions;
 import io.josemmo.bukkit.plugin.utils.SelectBlockTask;
@@ -60,6 +63,9 @@ public class ImageCommand {
         if (s.hasPermission("yamipa.command.remove.own") || s.hasPermission("yamipa.remove")) {
             s.sendMessage(ChatColor.AQUA + cmd + " remove" + ChatColor.RESET + " - Remove a single placed image");
         }
+        if (s.hasPermission("yamipa.command.status")) {
+            s.sendMessage(ChatColor.AQUA + cmd + " status" + ChatColor.RESET + " - Show rendering status");
+        }
         if (s.hasPermission("yamipa.command.top") || s.hasPermission("yamipa.top")) {
             s.sendMessage(ChatColor.AQUA + cmd + " top" + ChatColor.RESET + " - List players with the most images");
         }
@@ -247,6 +253,7 @@ public class ImageCommand {
         // Show loading status to player
         ActionBar loadingActionBar = ActionBar.repeat(player, ChatColor.AQUA + "Loading image...");
         fakeImage.setOnLoadedListener(loadingActionBar::clear);
+        fakeImage.setRenderPriority(RenderQueue.Priority.INTERACTIVE);
 
         // Add fake image to renderer
         renderer.addImage(fakeImage);
@@ -409,6 +416,40 @@ public class ImageCommand {
         task.run("Right click the image to describe");
     }
 
+    public static void showStatus(@NotNull CommandSender sender) {
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        AnimationThrottle throttle = plugin.getAnimationThrottle();
+        sender.sendMessage("=== Yamipa status ===");
+        sender.sendMessage(ChatColor.GOLD + "Placed images: " + ChatColor.RESET + plugin.getRenderer().size());
+        sender.sendMessage(ChatColor.GOLD + "Pending packet jobs: " + ChatColor.RESET +
+            plugin.getPacketScheduler().getNumOfPendingJobs());
+        RenderQueue renderQueue = plugin.getRenderQueue();
+        sender.sendMessage(ChatColor.GOLD + "Render jobs: " + ChatColor.RESET +
+            renderQueue.getNumOfRunningJobs() + " running (~" + (renderQueue.getUsedMemory() >> 20) + "MiB), " +
+            renderQueue.getNumOfQueuedJobs() + " queued");
+        InstrumentedExecutor[] executors = {
+            plugin.getIoExecutor(),
+            plugin.getRenderExecutor(),
+            plugin.getMovementExecutor()
+        };
+        for (InstrumentedExecutor executor : executors) {
+            sender.sendMessage(ChatColor.GOLD + "Executor \"" + executor.getName() + "\": " + ChatColor.RESET +
+                executor.getActiveCount() + " active, " + executor.getQueueSize() + " queued, " +
+                String.format("%.1fms wait, %.1fms run", executor.getAverageWaitTime(), executor.getAverageRunTime()));
+        }
+        if (!throttle.isEnabled()) {
+            sender.sendMessage(ChatColor.GOLD + "Animation throttle: " + ChatColor.GRAY + "Disabled");
+            return;
+        }
+        int stepDivisor = throttle.getStepDivisor();
+        sender.sendMessage(ChatColor.GOLD + "Animation throttle: " + (stepDivisor == 1 ?
+            ChatColor.GREEN + "Full rate" :
+            ChatColor.RED + "1 of every " + stepDivisor + " steps"));
+        sender.sendMessage(ChatColor.GOLD + "Tick time: " + ChatColor.RESET +
+            String.format("%.1f", throttle.getTickTime()) + "ms");
+        sender.sendMessage(ChatColor.GOLD + "Queued tasks: " + ChatColor.RESET + throttle.getQueuedTasks());
+    }
+
     public static void showTopPlayers(@NotNull CommandSender sender) {
         UUID senderId = (sender instanceof Player) ? ((Player) sender).getUniqueId() : null;
         Map<OfflinePlayer, Integer> stats = YamipaPlugin.getInstance().getRenderer().getImagesCountByPlayer();
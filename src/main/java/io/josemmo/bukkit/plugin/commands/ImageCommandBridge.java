@@ -69,6 +69,7 @@ public class ImageCommandBridge {
                 "yamipa.command.list", "yamipa.list",
                 "yamipa.command.place", "yamipa.place",
                 "yamipa.command.remove.own", "yamipa.remove",
+                "yamipa.command.status",
                 "yamipa.command.top", "yamipa.top"
             )
             .executes((sender, args) -> {
@@ -198,6 +199,13 @@ public class ImageCommandBridge {
                 ImageCommand.removeImage(player);
             });
 
+        // Status subcommand
+        root.addSubcommand("status")
+            .withPermission("yamipa.command.status")
+            .executes((sender, __) -> {
+                ImageCommand.showStatus(sender);
+            });
+
         // Top subcommand
         root.addSubcommand("top")
             .withPermission("yamipa.command.top", "yamipa.top")
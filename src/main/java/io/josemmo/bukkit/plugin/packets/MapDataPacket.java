@@ -17,6 +17,7 @@ public class MapDataPacket extends PacketContainer {
     private static final int LOCKED_INDEX;
     private static final @Nullable Constructor<?> MAP_ID_CONSTRUCTOR;
     private @Nullable StructureModifier<?> mapDataModifier;
+    private int numOfPixels = 0;
 
     static {
         LOCKED_INDEX = (Internals.MINECRAFT_VERSION < 1700) ? 1 : 0;
@@ -97,6 +98,11 @@ public class MapDataPacket extends PacketContainer {
         } else {
             mapDataModifier.withType(byte[].class).write(0, pixels);
         }
+        numOfPixels = pixels.length;
         return this;
     }
+
+    public int getNumOfPixels() {
+        return numOfPixels;
+    }
 }
@@ -0,0 +1,121 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import io.josemmo.bukkit.plugin.YamipaPlugin;
+import io.josemmo.bukkit.plugin.utils.Logger;
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single clock that drives the animation of all fake images.
+ * <p>
+ * Animated images are bucketed by their step delay. On every server tick, the clock advances the images of all buckets
+ * whose delay is a divisor of the current tick number, in a single pass.
+ * <p>
+ * Ticks never overlap: if the previous one is still running (<i>e.g.,</i> because of a GC pause), the tick is skipped.
+ */
+public class AnimationClock {
+    private static final Logger LOGGER = Logger.getLogger("AnimationClock");
+    private final Set<FakeImage>[] buckets;
+    private @Nullable BukkitTask task;
+    private final AtomicBoolean isTicking = new AtomicBoolean(false);
+    private final AtomicLong currentTick = new AtomicLong(0);
+
+    /**
+     * Class constructor
+     */
+    @SuppressWarnings("unchecked")
+    public AnimationClock() {
+        buckets = new Set[FakeImage.MAX_DELAY+1];
+        for (int delay=FakeImage.MIN_DELAY; delay<=FakeImage.MAX_DELAY; delay++) {
+            buckets[delay] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    /**
+     * Start service
+     */
+    public void start() {
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(YamipaPlugin.getInstance(), this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop service
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (int delay=FakeImage.MIN_DELAY; delay<=FakeImage.MAX_DELAY; delay++) {
+            buckets[delay].clear();
+        }
+    }
+
+    /**
+     * Get current tick
+     * @return Number of ticks since clock started
+     */
+    public long getCurrentTick() {
+        return currentTick.get();
+    }
+
+    /**
+     * Register animated image
+     * @param image Fake image instance
+     * @param delay Delay between steps in 50ms intervals
+     */
+    public void register(@NotNull FakeImage image, int delay) {
+        delay = Math.max(FakeImage.MIN_DELAY, Math.min(delay, FakeImage.MAX_DELAY));
+        buckets[delay].add(image);
+    }
+
+    /**
+     * Unregister animated image
+     * @param image Fake image instance
+     * @param delay Delay between steps in 50ms intervals
+     */
+    public void unregister(@NotNull FakeImage image, int delay) {
+        delay = Math.max(FakeImage.MIN_DELAY, Math.min(delay, FakeImage.MAX_DELAY));
+        buckets[delay].remove(image);
+    }
+
+    /**
+     * Run clock tick
+     */
+    void tick() {
+        if (!isTicking.compareAndSet(false, true)) {
+            LOGGER.fine("Skipped animation tick as the previous one is still running");
+            return;
+        }
+        try {
+            advance(currentTick.incrementAndGet());
+        } finally {
+            isTicking.set(false);
+        }
+    }
+
+    /**
+     * Advance animation of all due images
+     * @param tick Current tick number
+     */
+    private void advance(long tick) {
+        for (int delay=FakeImage.MIN_DELAY; delay<=FakeImage.MAX_DELAY; delay++) {
+            if (tick % delay != 0) {
+                continue;
+            }
+            for (FakeImage image : buckets[delay]) {
+                try {
+                    image.nextStep();
+                } catch (Exception e) {
+                    LOGGER.severe("Failed to advance animation of FakeImage#(" + image.getLocation() + ")", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import io.josemmo.bukkit.plugin.YamipaPlugin;
+import io.josemmo.bukkit.plugin.utils.Logger;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.Nullable;
+import java.lang.reflect.Method;
+
+/**
+ * Service for slowing down animations when the server is under pressure.
+ * <p>
+ * Samples the server tick duration and the number of queued rendering tasks every second. When any of them is too high,
+ * the animation step divisor is doubled (up to {@link #MAX_STEP_DIVISOR}) so image animations only send one of every N
+ * steps. Once the server recovers, the divisor is decreased one unit at a time.
+ */
+public class AnimationThrottle {
+    private static final Logger LOGGER = Logger.getLogger("AnimationThrottle");
+    public static final int MAX_STEP_DIVISOR = 8;
+    private static final long SAMPLE_INTERVAL = 20L; // In server ticks
+    private static final int MAX_QUEUED_TASKS = 200;
+    private static final double MIN_TICK_INTERVAL_THRESHOLD = 55; // In milliseconds (~18 TPS)
+    private static final double RECOVERY_RATIO = 0.8; // Ratio of thresholds below which the server is considered healthy
+    private static final int RECOVERY_SAMPLES = 5; // Consecutive healthy samples needed to decrease the divisor
+    private static final @Nullable Method GET_AVERAGE_TICK_TIME_METHOD;
+    private final double maxTickTime;
+    private @Nullable BukkitTask samplingTask;
+    private @Nullable BukkitTask tickTask;
+    private long lastTickTime = 0;
+    private volatile double tickInterval = 50; // Exponential moving average in milliseconds
+    private volatile double tickTime = 0;
+    private volatile int queuedTasks = 0;
+    private volatile int stepDivisor = 1;
+    private int healthySamples = 0;
+
+    static {
+        Method method = null;
+        try {
+            // Only available in PaperMC and forks
+            method = Server.class.getMethod("getAverageTickTime");
+        } catch (NoSuchMethodException __) {
+            LOGGER.fine("Server does not expose tick times, will use tick intervals instead");
+        }
+        GET_AVERAGE_TICK_TIME_METHOD = method;
+    }
+
+    /**
+     * Class constructor
+     * @param maxTickTime Maximum tick duration in milliseconds before throttling animations (<code>0</code> to disable)
+     */
+    public AnimationThrottle(double maxTickTime) {
+        this.maxTickTime = maxTickTime;
+    }
+
+    /**
+     * Is throttling enabled
+     * @return Whether throttling is enabled
+     */
+    public boolean isEnabled() {
+        return (maxTickTime > 0);
+    }
+
+    /**
+     * Get animation step divisor
+     * @return Send only one of every N animation steps
+     */
+    public int getStepDivisor() {
+        return stepDivisor;
+    }
+
+    /**
+     * Get latest tick duration
+     * <p>
+     * If the server does not expose tick times, this is the interval between ticks instead.
+     * @return Tick duration in milliseconds
+     */
+    public double getTickTime() {
+        return tickTime;
+    }
+
+    /**
+     * Get latest number of queued rendering tasks
+     * @return Number of queued tasks
+     */
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    /**
+     * Start service
+     */
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        if (GET_AVERAGE_TICK_TIME_METHOD == null) {
+            tickTask = Bukkit.getScheduler().runTaskTimer(plugin, this::onTick, 1L, 1L);
+        }
+        samplingTask = Bukkit.getScheduler().runTaskTimer(plugin, this::sample, SAMPLE_INTERVAL, SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Stop service
+     */
+    public void stop() {
+        if (tickTask != null) {
+            tickTask.cancel();
+            tickTask = null;
+        }
+        if (samplingTask != null) {
+            samplingTask.cancel();
+            samplingTask = null;
+        }
+        stepDivisor = 1;
+    }
+
+    /**
+     * On server tick
+     */
+    private void onTick() {
+        long now = System.nanoTime();
+        if (lastTickTime > 0) {
+            double interval = (now - lastTickTime) / 1_000_000.0;
+            tickInterval = tickInterval*0.9 + interval*0.1;
+        }
+        lastTickTime = now;
+    }
+
+    /**
+     * Sample server load and update step divisor
+     */
+    private void sample() {
+        // Get tick duration
+        double tickThreshold = maxTickTime;
+        if (GET_AVERAGE_TICK_TIME_METHOD == null) {
+            tickTime = tickInterval;
+            tickThreshold = Math.max(maxTickTime, MIN_TICK_INTERVAL_THRESHOLD);
+        } else {
+            try {
+                tickTime = (double) GET_AVERAGE_TICK_TIME_METHOD.invoke(Bukkit.getServer());
+            } catch (Exception e) {
+                LOGGER.warning("Failed to get average tick time from server", e);
+            }
+        }
+
+        // Get number of queued rendering tasks (background jobs do not cause lag)
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        queuedTasks = plugin.getRenderExecutor().getQueueSize() + plugin.getRenderQueue().getNumOfQueuedUrgentJobs();
+
+        // Throttle animations when under pressure
+        if (tickTime > tickThreshold || queuedTasks > MAX_QUEUED_TASKS) {
+            healthySamples = 0;
+            if (stepDivisor < MAX_STEP_DIVISOR) {
+                stepDivisor = Math.min(stepDivisor*2, MAX_STEP_DIVISOR);
+                LOGGER.info(
+                    "Server is under pressure (" + Math.round(tickTime) + "ms/tick, " + queuedTasks + " queued tasks), " +
+                    "sending 1 of every " + stepDivisor + " animation steps"
+                );
+            }
+            return;
+        }
+
+        // Recover gradually
+        boolean isHealthy = (tickTime < tickThreshold*RECOVERY_RATIO) && (queuedTasks < MAX_QUEUED_TASKS*RECOVERY_RATIO);
+        if (!isHealthy || stepDivisor == 1) {
+            healthySamples = 0;
+            return;
+        }
+        if (++healthySamples >= RECOVERY_SAMPLES) {
+            healthySamples = 0;
+            stepDivisor--;
+            LOGGER.info("Server load decreased, sending 1 of every " + stepDivisor + " animation steps");
+        }
+    }
+}
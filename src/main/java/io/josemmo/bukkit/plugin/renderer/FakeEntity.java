@@ -12,11 +12,19 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
 
 public abstract class FakeEntity {
     private static final Logger LOGGER = Logger.getLogger("FakeEntity");
     private static final ProtocolManager CONNECTION = ProtocolLibrary.getProtocolManager();
     private static @Nullable NetworkManagerInjector NETWORK_MANAGER_INJECTOR;
+    private static boolean CAN_CHECK_CHANNEL_STATE = true;
+    private static @Nullable Field CHANNEL_FIELD;
+    private static @Nullable Method IS_WRITABLE_METHOD;
 
     static {
         try {
@@ -36,17 +44,48 @@ public abstract class FakeEntity {
     }
 
     /**
-     * Try to sleep
+     * Is player connection writable
      * <p>
-     * NOTE: Will wait synchronously, blocking the invoker thread
-     * @param ms Delay in milliseconds
+     * Tells whether the Netty channel of a player can take more packets without having to buffer them in memory.
+     * @param  player Player instance
+     * @return        FALSE if channel is known to be saturated, TRUE otherwise
      */
-    @SuppressWarnings("SameParameterValue")
-    protected static void tryToSleep(long ms) {
+    protected static boolean isWritable(@NotNull Player player) {
+        if (NETWORK_MANAGER_INJECTOR == null || !CAN_CHECK_CHANNEL_STATE) {
+            return true;
+        }
+        Object injector = NETWORK_MANAGER_INJECTOR.getInjector(player);
+
+        // Find channel field from injector instance
+        if (CHANNEL_FIELD == null) {
+            try {
+                for (Class<?> c = injector.getClass(); c != null && CHANNEL_FIELD == null; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (field.getType().getName().equals("io.netty.channel.Channel")) {
+                            field.setAccessible(true);
+                            IS_WRITABLE_METHOD = field.getType().getMethod("isWritable");
+                            CHANNEL_FIELD = field;
+                            break;
+                        }
+                    }
+                }
+                if (CHANNEL_FIELD == null) {
+                    throw new RuntimeException("No valid candidate field found in " + injector.getClass().getName());
+                }
+            } catch (Exception e) {
+                CAN_CHECK_CHANNEL_STATE = false;
+                LOGGER.warning("Failed to get Netty channel from ProtocolLib, will assume it is always writable", e);
+                return true;
+            }
+        }
+
+        // Check channel state
         try {
-            Thread.sleep(ms);
+            Object channel = CHANNEL_FIELD.get(injector);
+            return (channel == null || (boolean) Objects.requireNonNull(IS_WRITABLE_METHOD).invoke(channel));
         } catch (Exception __) {
-            // Fail silently
+            // Not a regular player injector, assume writable
+            return true;
         }
     }
 
@@ -75,6 +114,8 @@ public abstract class FakeEntity {
 
     /**
      * Try to send several packets
+     * <p>
+     * On 1.19.4+, packets are grouped into as many bundles as needed to stay below the bundle size limits.
      * @param player  Player who will receive the packets
      * @param packets Packets to send
      */
@@ -83,18 +124,59 @@ public abstract class FakeEntity {
             for (PacketContainer packet : packets) {
                 tryToSendPacket(player, packet);
             }
-        } else {
-            PacketContainer container = new PacketContainer(PacketType.Play.Server.BUNDLE);
-            container.getPacketBundles().write(0, packets);
-            tryToSendPacket(player, container);
+            return;
+        }
+
+        // Split packets into bundles
+        PacketScheduler packetScheduler = YamipaPlugin.getInstance().getPacketScheduler();
+        int maxBundlePackets = packetScheduler.getMaxBundlePackets();
+        int maxBundleBytes = packetScheduler.getMaxBundleBytes();
+        List<PacketContainer> bundle = new ArrayList<>();
+        int bundleBytes = 0;
+        for (PacketContainer packet : packets) {
+            int packetBytes = PacketScheduler.getSize(packet);
+            boolean isFull = (bundle.size() >= maxBundlePackets) ||
+                (maxBundleBytes > 0 && bundleBytes+packetBytes > maxBundleBytes);
+            if (isFull && !bundle.isEmpty()) {
+                tryToSendBundle(player, bundle);
+                bundle = new ArrayList<>();
+                bundleBytes = 0;
+            }
+            bundle.add(packet);
+            bundleBytes += packetBytes;
         }
+        if (!bundle.isEmpty()) {
+            tryToSendBundle(player, bundle);
+        }
+    }
+
+    /**
+     * Try to send packets as a single bundle
+     * @param player  Player who will receive the packets
+     * @param packets Packets to send
+     */
+    private static void tryToSendBundle(@NotNull Player player, @NotNull List<PacketContainer> packets) {
+        if (packets.size() == 1) {
+            tryToSendPacket(player, packets.get(0));
+            return;
+        }
+        PacketContainer container = new PacketContainer(PacketType.Play.Server.BUNDLE);
+        container.getPacketBundles().write(0, packets);
+        tryToSendPacket(player, container);
     }
 
     /**
-     * Try to run asynchronous task
-     * @param callback Callback to execute
+     * Try to run asynchronous rendering task
+     * @param  callback Callback to execute
+     * @return          Whether task was accepted
      */
-    protected static void tryToRunAsyncTask(@NotNull Runnable callback) {
-        YamipaPlugin.getInstance().getScheduler().execute(callback);
+    protected static boolean tryToRunAsyncTask(@NotNull Runnable callback) {
+        try {
+            YamipaPlugin.getInstance().getRenderExecutor().execute(callback);
+            return true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning("Failed to schedule rendering task", e);
+            return false;
+        }
     }
 }
@@ -4,23 +4,25 @@ import com.comphenix.protocol.events.PacketContainer;
 import io.josemmo.bukkit.plugin.YamipaPlugin;
 import io.josemmo.bukkit.plugin.storage.CachedMapsFile;
 import io.josemmo.bukkit.plugin.storage.ImageFile;
+import io.josemmo.bukkit.plugin.storage.RenderQueue;
 import io.josemmo.bukkit.plugin.utils.DirectionUtils;
 import io.josemmo.bukkit.plugin.utils.Logger;
 import io.josemmo.bukkit.plugin.utils.Permissions;
+import org.bukkit.FluidCollisionMode;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.Rotation;
+import org.bukkit.World;
 import org.bukkit.block.BlockFace;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.util.RayTraceResult;
 import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import java.awt.*;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 public class FakeImage extends FakeEntity {
@@ -31,6 +33,8 @@ public class FakeImage extends FakeEntity {
     public static final int MIN_DELAY = 1; // Minimum step delay in 50ms intervals (50ms / 50ms)
     public static final int MAX_DELAY = 50; // Maximum step delay in 50ms intervals (5000ms / 50ms)
     public static final UUID UNKNOWN_PLAYER_ID = new UUID(0, 0);
+    private static final int TILE_DESTROY_MARGIN = 8; // Extra distance in blocks before destroying far item frames
+    private static final double MAX_VISIBILITY_RAY_LENGTH = 32; // Maximum distance in blocks to look for occluders
 
     // Flags
     public static final int FLAG_ANIMATABLE = 1; // Whether image is allowed to animate multiple steps
@@ -51,18 +55,30 @@ public class FakeImage extends FakeEntity {
     private final OfflinePlayer placedBy;
     private final int flags;
     private final BiFunction<Integer, Integer, Vector> getLocationVector;
-    private final Set<Player> observingPlayers = new HashSet<>();
+    private final Location center;
+    private final int minX;
+    private final int maxX;
+    private final int minZ;
+    private final int maxZ;
+    private final Vector[] visibilitySamples; // Points in front of the image used for testing occlusion
+    private final ObserverRegistry observers = new ObserverRegistry();
     private @Nullable Runnable onLoadedListener = null;
+    private RenderQueue.Priority renderPriority = RenderQueue.Priority.NORMAL;
 
     // Generated values
-    private boolean loading = false;
-    private FakeItemFrame[] frames = null;
+    private boolean loading = false; // Guarded by "this"
+    private boolean destroyed = false; // Whether image has been removed from the renderer, guarded by "this"
+    private final Set<Player> pendingObservers = new HashSet<>(); // Players waiting for loading, guarded by "this"
+    private volatile FakeItemFrame[] frames = null;
+    private volatile FakeItemFrame[] animatedFrames = null; // Frames whose maps change between steps
+    private int[] ownMapIds = null; // Map IDs of animated tiles, kept between loads so clients can reuse their canvases
     private int delay = 0; // Delay between steps in 50ms intervals, "0" for N/A
     private int numOfSteps = -1;  // Total number of animation steps
 
-    // Animation task attributes
-    private @Nullable ScheduledFuture<?> task;
+    // Animation attributes
+    private volatile boolean animating = false; // Whether image is registered in the animation clock, set under "this"
     private int currentStep = -1; // Current animation step
+    private long numOfTicks = 0; // Number of animation steps since animation started
 
     /**
      * Get image rotation from player eyesight
@@ -123,6 +139,20 @@ public class FakeImage extends FakeEntity {
         return height;
     }
 
+    /**
+     * Get send priority of an item frame
+     * @param  frame          Item frame instance
+     * @param  playerLocation Player location
+     * @return                Priority (lower values get sent first)
+     */
+    private static double getSendPriority(@NotNull FakeItemFrame frame, @NotNull Location playerLocation) {
+        Location frameLocation = frame.getLocation();
+        if (!Objects.equals(frameLocation.getWorld(), playerLocation.getWorld())) {
+            return Double.MAX_VALUE;
+        }
+        return frameLocation.distanceSquared(playerLocation);
+    }
+
     /**
      * Class constructor
      * @param filename  Image filename
@@ -187,6 +217,25 @@ public class FakeImage extends FakeEntity {
             }
         }
 
+        center = location.clone().add(getLocationVector.apply(width/2, height/2));
+
+        // Get horizontal extent of the image
+        Location corner = location.clone().add(getLocationVector.apply(width-1, height-1));
+        minX = Math.min(location.getBlockX(), corner.getBlockX());
+        maxX = Math.max(location.getBlockX(), corner.getBlockX());
+        minZ = Math.min(location.getBlockZ(), corner.getBlockZ());
+        maxZ = Math.max(location.getBlockZ(), corner.getBlockZ());
+
+        // Get points right in front of the image surface (center and corners)
+        Vector offset = new Vector(0.5, 0.5, 0.5).add(face.getDirection().multiply(0.55));
+        visibilitySamples = new Vector[] {
+            center.toVector().add(offset),
+            location.toVector().add(offset),
+            location.toVector().add(getLocationVector.apply(width-1, 0)).add(offset),
+            location.toVector().add(getLocationVector.apply(0, height-1)).add(offset),
+            location.toVector().add(getLocationVector.apply(width-1, height-1)).add(offset),
+        };
+
         LOGGER.fine("Created FakeImage#(" + location + "," + face + ") from ImageFile#(" + filename + ")");
     }
 
@@ -214,6 +263,14 @@ public class FakeImage extends FakeEntity {
         return location;
     }
 
+    /**
+     * Get world name
+     * @return World name
+     */
+    public @NotNull String getWorldName() {
+        return location.getWorld().getName();
+    }
+
     /**
      * Get image block face
      * @return Image block face
@@ -301,47 +358,149 @@ public class FakeImage extends FakeEntity {
         return locations;
     }
 
+    /**
+     * Get minimum X block coordinate covered by the image
+     * @return Minimum X coordinate
+     */
+    public int getMinX() {
+        return minX;
+    }
+
+    /**
+     * Get maximum X block coordinate covered by the image
+     * @return Maximum X coordinate
+     */
+    public int getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Get minimum Z block coordinate covered by the image
+     * @return Minimum Z coordinate
+     */
+    public int getMinZ() {
+        return minZ;
+    }
+
+    /**
+     * Get maximum Z block coordinate covered by the image
+     * @return Maximum Z coordinate
+     */
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    /**
+     * Intersects with area
+     * @param  minX Minimum X coordinate
+     * @param  maxX Maximum X coordinate
+     * @param  minZ Minimum Z coordinate
+     * @param  maxZ Maximum Z coordinate
+     * @return      Whether any block covered by the image is inside the area
+     */
+    public boolean intersects(int minX, int maxX, int minZ, int maxZ) {
+        return (this.minX <= maxX && this.maxX >= minX && this.minZ <= maxZ && this.maxZ >= minZ);
+    }
+
+    /**
+     * Get horizontal squared distance to a point
+     * @param  x X coordinate
+     * @param  z Z coordinate
+     * @return   Squared distance in blocks to the closest block covered by the image, <code>0</code> if inside
+     */
+    public double getDistanceSquared(double x, double z) {
+        double dx = Math.max(Math.max(minX - x, x - (maxX+1)), 0);
+        double dz = Math.max(Math.max(minZ - z, z - (maxZ+1)), 0);
+        return dx*dx + dz*dz;
+    }
+
     /**
      * Get the world area IDs where this image is located
      * @return Array of world area IDs
      */
-    public @NotNull WorldAreaId[] getWorldAreaIds() {
-        Set<WorldAreaId> corners = new HashSet<>();
-        corners.add(WorldAreaId.fromLocation(location));
-        corners.add(WorldAreaId.fromLocation(location.clone().add(getLocationVector.apply(width-1, 0))));
-        corners.add(WorldAreaId.fromLocation(location.clone().add(getLocationVector.apply(0, height-1))));
-        corners.add(WorldAreaId.fromLocation(location.clone().add(getLocationVector.apply(width-1, height-1))));
-        return corners.toArray(new WorldAreaId[0]);
+    public @NotNull long[] getWorldAreaIds() {
+        long minId = WorldAreaId.fromBlock(minX, minZ);
+        long maxId = WorldAreaId.fromBlock(maxX, maxZ);
+        int minAreaX = WorldAreaId.getX(minId);
+        int minAreaZ = WorldAreaId.getZ(minId);
+        int numOfAreasZ = WorldAreaId.getZ(maxId) - minAreaZ + 1;
+        long[] ids = new long[(WorldAreaId.getX(maxId)-minAreaX+1) * numOfAreasZ];
+        for (int i=0; i<ids.length; i++) {
+            ids[i] = WorldAreaId.pack(minAreaX + i/numOfAreasZ, minAreaZ + i%numOfAreasZ);
+        }
+        return ids;
     }
 
     /**
-     * Verify whether a point is contained in the image plane
-     * @param  location Location instance (only for coordinates)
-     * @param  face     Block face
-     * @return          TRUE for contained, FALSE otherwise
+     * Is potentially visible from a location
+     * <p>
+     * Checks the player is in front of the image and samples a few rays to detect solid blocks in between.
+     * Only blocks near the player are tested, as those are the ones more likely to hide the image.
+     * @param  eyeLocation Player eye location
+     * @return             Whether image is potentially visible
      */
-    @SuppressWarnings("RedundantIfStatement")
-    public boolean contains(@NotNull Location location, @NotNull BlockFace face) {
-        // Is point facing the same plane as the image?
-        if (face != this.face) {
+    public boolean isVisibleFrom(@NotNull Location eyeLocation) {
+        World world = location.getWorld();
+        if (world == null || !world.equals(eyeLocation.getWorld())) {
+            return false;
+        }
+
+        // Is player behind the image plane?
+        Vector eye = eyeLocation.toVector();
+        Vector normal = face.getDirection();
+        if (eye.clone().subtract(visibilitySamples[0]).dot(normal) <= 0) {
             return false;
         }
 
-        // Get sorted plane edges
-        Location topLeft = this.location;
-        Location bottomRight = this.location.clone().add(getLocationVector.apply(width-1, height-1));
-        int[] x = new int[]{topLeft.getBlockX(), bottomRight.getBlockX()};
-        int[] y = new int[]{topLeft.getBlockY(), bottomRight.getBlockY()};
-        int[] z = new int[]{topLeft.getBlockZ(), bottomRight.getBlockZ()};
-        Arrays.sort(x);
-        Arrays.sort(y);
-        Arrays.sort(z);
-
-        // Is point located inside the plane limits?
-        int[] point = new int[] {location.getBlockX(), location.getBlockY(), location.getBlockZ()};
-        if (point[0] < x[0] || point[0] > x[1]) return false;
-        if (point[1] < y[0] || point[1] > y[1]) return false;
-        if (point[2] < z[0] || point[2] > z[1]) return false;
+        // Is any point of the image not occluded?
+        for (Vector target : visibilitySamples) {
+            Vector direction = target.clone().subtract(eye);
+            double distance = direction.length();
+            if (distance < 0.01) {
+                return true;
+            }
+            RayTraceResult result = world.rayTraceBlocks(
+                eyeLocation,
+                direction.multiply(1 / distance),
+                Math.min(distance, MAX_VISIBILITY_RAY_LENGTH),
+                FluidCollisionMode.NEVER,
+                true
+            );
+            if (result == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update visibility for a player
+     * <p>
+     * Animation steps are not sent to players who cannot see the image, which resumes once it comes into view.
+     * Players too far away to receive animation steps are skipped.
+     * @param  player Player instance
+     * @return        Whether visibility was tested
+     */
+    public boolean updateVisibility(@NotNull Player player) {
+        ObserverRegistry.Observer observer = observers.get(player);
+        if (animatedFrames == null || animatedFrames.length == 0 || observer == null) {
+            return false;
+        }
+        Location eyeLocation = player.getEyeLocation();
+        double distanceSquared = Objects.equals(center.getWorld(), eyeLocation.getWorld()) ?
+            center.distanceSquared(eyeLocation) :
+            Double.MAX_VALUE;
+        if (YamipaPlugin.getInstance().getRenderer().getAnimationRate(distanceSquared) == 0) {
+            return false;
+        }
+        boolean hidden = !isVisibleFrom(eyeLocation);
+        if (hidden != observer.isHidden()) {
+            observer.setHidden(hidden);
+            LOGGER.fine(
+                "FakeImage#(" + location + "," + face + ") is now " + (hidden ? "hidden" : "visible") + " for " +
+                "Player#" + player.getName()
+            );
+        }
         return true;
     }
 
@@ -356,6 +515,40 @@ public class FakeImage extends FakeEntity {
         this.onLoadedListener = onLoadedListener;
     }
 
+    /**
+     * Set render priority
+     * <p>
+     * Defines the priority of the render job submitted the next time this image gets loaded.
+     * @param renderPriority Render priority
+     */
+    public void setRenderPriority(@NotNull RenderQueue.Priority renderPriority) {
+        this.renderPriority = renderPriority;
+    }
+
+    /**
+     * Prefetch maps
+     * <p>
+     * Warms up the image file in a background render job, without sending anything to players.
+     * Has no effect if this instance is already loaded or loading.
+     * @param distanceSquared Squared distance in blocks from the predicted player location to the image
+     * @param deadline        Timestamp in milliseconds after which prefetching is no longer useful
+     * @param ttl             Time in milliseconds to keep prefetched maps in memory
+     */
+    public void prefetch(double distanceSquared, long deadline, long ttl) {
+        synchronized (this) {
+            if (frames != null || loading) {
+                return;
+            }
+        }
+        ImageFile file = getFile();
+        if (file == null) {
+            return;
+        }
+        YamipaPlugin.getInstance().getRenderQueue().prefetch(file, width, height, distanceSquared, deadline, () -> {
+            file.prefetch(width, height, ttl);
+        });
+    }
+
     /**
      * Load generated instance attributes
      */
@@ -364,38 +557,77 @@ public class FakeImage extends FakeEntity {
 
         // Get maps to use
         FakeMap[][][] maps;
+        CachedMapsFile cachedMapsFile = null;
         if (file == null) {
             maps = FakeMap.getErrorMatrix(width, height);
             LOGGER.warning("File \"" + filename + "\" does not exist");
         } else {
-            CachedMapsFile cachedMapsFile = file.getMapsAndSubscribe(this);
+            cachedMapsFile = file.getMapsAndSubscribe(this, this::showPreview);
             maps = cachedMapsFile.getMaps();
             delay = cachedMapsFile.getDelay();
         }
         numOfSteps = maps[0][0].length;
 
-        // Generate frames
-        FakeItemFrame[] newFrames = new FakeItemFrame[width*height];
-        boolean glowing = hasFlag(FLAG_GLOWING);
+        // Use own delta maps for animated tiles
+        // NOTE: Cached maps are shared with other copies of the image, which might not be in phase with this one
+        boolean[][] isAnimated = new boolean[width][height];
+        FakeMap[][][] imageMaps = new FakeMap[width][height][];
         for (int col=0; col<width; col++) {
             for (int row=0; row<height; row++) {
-                Location frameLocation = location.clone().add(getLocationVector.apply(col, row));
-                newFrames[height*col+row] = new FakeItemFrame(frameLocation, face, rotation, glowing, maps[col][row]);
+                FakeMap[] tileMaps = maps[col][row];
+                isAnimated[col][row] = (cachedMapsFile != null && cachedMapsFile.isAnimated(col, row));
+                if (isAnimated[col][row] && tileMaps[0].isDelta()) {
+                    tileMaps = FakeMap.copyDeltaSteps(tileMaps, getOwnMapId(col, row));
+                }
+                imageMaps[col][row] = tileMaps;
+            }
+        }
+
+        // Generate frames (or update those created for the preview)
+        FakeItemFrame[] previewFrames = frames;
+        FakeItemFrame[] newFrames = (previewFrames == null) ? createFrames(imageMaps) : previewFrames;
+        List<FakeItemFrame> newAnimatedFrames = new ArrayList<>();
+        for (int col=0; col<width; col++) {
+            for (int row=0; row<height; row++) {
+                FakeItemFrame frame = newFrames[height*col+row];
+                if (previewFrames != null) {
+                    frame.setMaps(imageMaps[col][row]);
+                }
+                if (isAnimated[col][row]) {
+                    newAnimatedFrames.add(frame);
+                }
             }
         }
         frames = newFrames;
+        animatedFrames = newAnimatedFrames.toArray(new FakeItemFrame[0]);
+
+        // Replace preview for players already observing the image
+        // NOTE: Frames with pending jobs are skipped, as those jobs will already use the new maps
+        if (previewFrames != null) {
+            ImageRenderer renderer = YamipaPlugin.getInstance().getRenderer();
+            for (ObserverRegistry.Observer observer : observers.getAll()) {
+                Player player = observer.getPlayer();
+                Location playerLocation = renderer.getPlayerLocation(player);
+                for (FakeItemFrame frame : newFrames) {
+                    if (!observer.isSpawned(frame)) continue;
+                    scheduleRender(player, observer, frame, getSendPriority(frame, playerLocation));
+                }
+            }
+            LOGGER.fine("Replaced preview of FakeImage#(" + location + "," + face + ")");
+        }
 
-        // Start animation task (if needed)
+        // Start animation (if needed)
+        // NOTE: Static frames are only sent once when spawning the image
         YamipaPlugin plugin = YamipaPlugin.getInstance();
         boolean isAnimationEnabled = plugin.getRenderer().isAnimationEnabled();
-        if (isAnimationEnabled && task == null && hasFlag(FLAG_ANIMATABLE) && numOfSteps > 1) {
-            task = plugin.getScheduler().scheduleAtFixedRate(
-                this::nextStep,
-                0,
-                delay*50L,
-                TimeUnit.MILLISECONDS
-            );
-            LOGGER.fine("Spawned animation task for FakeImage#(" + location + "," + face + ")");
+        if (isAnimationEnabled && hasFlag(FLAG_ANIMATABLE) && !newAnimatedFrames.isEmpty()) {
+            synchronized (this) {
+                if (!animating) {
+                    animating = true;
+                    plugin.getAnimationClock().register(this, delay);
+                    LOGGER.fine("Started animation of FakeImage#(" + location + "," + face + ")");
+                }
+            }
         }
 
         // Notify listener
@@ -405,6 +637,78 @@ public class FakeImage extends FakeEntity {
         }
     }
 
+    /**
+     * Get own map ID of a tile
+     * <p>
+     * IDs are allocated the first time they are needed and then kept for the lifetime of this instance, so reloading
+     * the image does not make clients allocate new map canvases.
+     * <p>
+     * NOTE: Only called from {@link #load()}, which never runs concurrently for the same instance
+     * @param  col Tile column
+     * @param  row Tile row
+     * @return     Map ID
+     */
+    private int getOwnMapId(int col, int row) {
+        if (ownMapIds == null) {
+            ownMapIds = new int[width*height];
+        }
+        int index = height*col + row;
+        if (ownMapIds[index] == 0) {
+            ownMapIds[index] = FakeMap.getNextId();
+        }
+        return ownMapIds[index];
+    }
+
+    /**
+     * Create item frames
+     * @param  maps Maps to use (column, row, step)
+     * @return      Item frames
+     */
+    private @NotNull FakeItemFrame[] createFrames(@NotNull FakeMap[][][] maps) {
+        FakeItemFrame[] newFrames = new FakeItemFrame[width*height];
+        boolean glowing = hasFlag(FLAG_GLOWING);
+        for (int col=0; col<width; col++) {
+            for (int row=0; row<height; row++) {
+                Location frameLocation = location.clone().add(getLocationVector.apply(col, row));
+                newFrames[height*col+row] = new FakeItemFrame(frameLocation, face, rotation, glowing, maps[col][row]);
+            }
+        }
+        return newFrames;
+    }
+
+    /**
+     * Show preview while the rest of animation steps get rendered
+     * <p>
+     * Spawns the image for all pending observers using a single animation step.
+     * Maps get replaced once loading finishes.
+     * <p>
+     * NOTE: Only the instance that triggers the rendering of the maps receives a preview. Other copies of the same
+     * image with the same dimensions wait for the complete maps instead, which are ready right after.
+     * @param previewMaps Preview maps (column, row, step)
+     */
+    private void showPreview(@NotNull FakeMap[][][] previewMaps) {
+        numOfSteps = 1;
+        animatedFrames = new FakeItemFrame[0];
+        frames = createFrames(previewMaps);
+        LOGGER.fine("Showing preview of FakeImage#(" + location + "," + face + ")");
+
+        // Notify listener
+        if (onLoadedListener != null) {
+            onLoadedListener.run();
+            onLoadedListener = null;
+        }
+
+        // Spawn preview for pending observers
+        Player[] players;
+        synchronized (this) {
+            players = pendingObservers.toArray(new Player[0]);
+            pendingObservers.clear();
+        }
+        for (Player player : players) {
+            spawnOnceLoaded(player);
+        }
+    }
+
     /**
      * Spawn image for a player
      * @param player Player instance
@@ -412,30 +716,88 @@ public class FakeImage extends FakeEntity {
     public void spawn(@NotNull Player player) {
         LOGGER.fine("Received request to spawn FakeImage#(" + location + "," + face + ") for Player#" + player.getName());
 
-        // Send pixels if instance is already loaded
-        if (frames != null) {
-            spawnOnceLoaded(player);
-            return;
+        // Register as pending observer if instance is not loaded yet
+        // NOTE: Otherwise, the player becomes an observer while holding the lock so the instance cannot get invalidated
+        FakeItemFrame[] frames;
+        ObserverRegistry.Observer observer;
+        synchronized (this) {
+            if (destroyed) {
+                return;
+            }
+            frames = this.frames;
+            if (frames == null) {
+                if (pendingObservers.add(player)) {
+                    requestLoad(player);
+                }
+                return;
+            }
+            observer = addObserver(player);
         }
 
-        // Wait for instance to load if loading
+        // Send pixels if instance is already loaded
+        spawnFrames(player, observer, frames);
+    }
+
+    /**
+     * Request loading instance for a pending observer
+     * <p>
+     * NOTE: Must be called while holding the lock of this instance
+     * @param player Player instance
+     */
+    private void requestLoad(@NotNull Player player) {
+        Location playerLocation = YamipaPlugin.getInstance().getRenderer().getPlayerLocation(player);
+        double distanceSquared = Objects.equals(playerLocation.getWorld(), center.getWorld()) ?
+            playerLocation.distanceSquared(center) :
+            Double.MAX_VALUE;
+        ImageFile file = getFile();
+        RenderQueue renderQueue = YamipaPlugin.getInstance().getRenderQueue();
+
+        // Rank existing render job higher
         if (loading) {
-            tryToRunAsyncTask(() -> {
-                while (loading) {
-                    tryToSleep(5);
-                }
-                spawnOnceLoaded(player);
-            });
+            if (file != null) {
+                renderQueue.boost(file, this, distanceSquared);
+            }
             return;
         }
 
-        // Instance needs to be loaded
-        loading = true;
-        tryToRunAsyncTask(() -> {
+        // Request loading (error matrices are not worth queueing)
+        if (file == null) {
+            loading = tryToRunAsyncTask(this::loadAndSpawnPending);
+            if (!loading) {
+                pendingObservers.clear(); // Players will get the image on their next world area change
+            }
+        } else {
+            loading = true;
+            renderQueue.submit(file, this, renderPriority, distanceSquared, this::loadAndSpawnPending);
+        }
+    }
+
+    /**
+     * Load instance and spawn it for all pending observers
+     */
+    private void loadAndSpawnPending() {
+        try {
             load();
+        } catch (Exception e) {
+            LOGGER.severe("Failed to load FakeImage#(" + location + "," + face + ")", e);
+        }
+
+        // Take pending observers
+        Player[] players;
+        synchronized (this) {
             loading = false;
+            renderPriority = RenderQueue.Priority.NORMAL;
+            players = pendingObservers.toArray(new Player[0]);
+            pendingObservers.clear();
+        }
+
+        // Spawn image for all of them at once
+        for (Player player : players) {
             spawnOnceLoaded(player);
-        });
+        }
+
+        // Invalidate instance (if players left while loading)
+        invalidateIfUnobserved();
     }
 
     /**
@@ -443,26 +805,188 @@ public class FakeImage extends FakeEntity {
      * @param player Player instance
      */
     private void spawnOnceLoaded(@NotNull Player player) {
-        String playerName = player.getName();
-        observingPlayers.add(player);
+        FakeItemFrame[] frames;
+        ObserverRegistry.Observer observer;
+        synchronized (this) {
+            frames = this.frames;
+            if (frames == null) {
+                return; // Image failed to load
+            }
+            observer = addObserver(player);
+        }
+        spawnFrames(player, observer, frames);
+    }
+
+    /**
+     * Add player as observer
+     * <p>
+     * NOTE: Must be called while holding the lock of this instance
+     * @param  player Player instance
+     * @return        Observer instance
+     */
+    private @NotNull ObserverRegistry.Observer addObserver(@NotNull Player player) {
+        return observers.add(player, Math.max(currentStep, 0), isTiled());
+    }
+
+    /**
+     * Is tiled
+     * <p>
+     * Players only receive the item frames of tiled images that are close enough to them. Images no larger than the
+     * tile spawn distance are always sent entirely.
+     * @return Whether image is tiled
+     */
+    public boolean isTiled() {
+        int tileSpawnDistance = YamipaPlugin.getInstance().getRenderer().getTileSpawnDistance();
+        return tileSpawnDistance > 0 && Math.max(width, height) > tileSpawnDistance;
+    }
+
+    /**
+     * Spawn item frames for an observer
+     * @param player   Player instance
+     * @param observer Observer instance
+     * @param frames   Item frames
+     */
+    private void spawnFrames(
+        @NotNull Player player,
+        @NotNull ObserverRegistry.Observer observer,
+        @NotNull FakeItemFrame[] frames
+    ) {
+        int tileSpawnDistance = YamipaPlugin.getInstance().getRenderer().getTileSpawnDistance();
+        boolean partial = observer.isPartial();
 
-        // Prepare packets to send
-        List<PacketContainer> packets = new ArrayList<>();
-        for (FakeItemFrame frame : frames) {
+        // Schedule packets to send, closest frames first
+        // NOTE: Pixels are built right before sending them to match the animation step at that time
+        PacketScheduler packetScheduler = YamipaPlugin.getInstance().getPacketScheduler();
+        int spawnRowsPerTick = packetScheduler.getSpawnRowsPerTick();
+        Location playerLocation = YamipaPlugin.getInstance().getRenderer().getPlayerLocation(player);
+        double maxDistanceSquared = (double) tileSpawnDistance * tileSpawnDistance;
+        for (int i=0; i<frames.length; i++) {
+            FakeItemFrame frame = frames[i];
+            double priority = getSendPriority(frame, playerLocation);
+            if (partial && priority > maxDistanceSquared) {
+                continue; // Too far away, will get spawned once the player gets closer
+            }
+            observer.setSpawned(frame, true);
+            int delayTicks = (spawnRowsPerTick > 0) ? (i % height) / spawnRowsPerTick : 0;
+            scheduleSpawn(player, observer, frame, priority, delayTicks);
+        }
+    }
+
+    /**
+     * Schedule spawn of an item frame
+     * @param player     Player instance
+     * @param observer   Observer instance
+     * @param frame      Item frame instance
+     * @param priority   Send priority
+     * @param delayTicks Minimum number of ticks to wait before sending
+     */
+    private void scheduleSpawn(
+        @NotNull Player player,
+        @NotNull ObserverRegistry.Observer observer,
+        @NotNull FakeItemFrame frame,
+        double priority,
+        int delayTicks
+    ) {
+        PacketScheduler packetScheduler = YamipaPlugin.getInstance().getPacketScheduler();
+        packetScheduler.schedule(player, frame, priority, delayTicks, () -> {
+            if (observers.get(player) != observer) {
+                // Image was destroyed for this player after scheduling the packets
+                return Collections.emptyList();
+            }
+            List<PacketContainer> packets = new ArrayList<>();
             packets.add(frame.getSpawnPacket());
-            packets.addAll(frame.getRenderPackets(player, 0));
-            LOGGER.fine("Spawned FakeItemFrame#" + frame.getId() + " for Player#" + playerName);
+            packets.addAll(frame.getRenderPackets(player, observer.getStep()));
+            return packets;
+        });
+        LOGGER.fine("Scheduled spawn of FakeItemFrame#" + frame.getId() + " for Player#" + player.getName());
+    }
+
+    /**
+     * Schedule render of an item frame (unless it has pending packets)
+     * <p>
+     * Pending jobs are never replaced, as those might be spawn jobs queued meanwhile by another thread (and replacing
+     * them with a render job would leave the item frame unspawned).
+     * @param player   Player instance
+     * @param observer Observer instance
+     * @param frame    Item frame instance
+     * @param priority Send priority
+     */
+    private void scheduleRender(
+        @NotNull Player player,
+        @NotNull ObserverRegistry.Observer observer,
+        @NotNull FakeItemFrame frame,
+        double priority
+    ) {
+        PacketScheduler packetScheduler = YamipaPlugin.getInstance().getPacketScheduler();
+        packetScheduler.scheduleIfAbsent(player, frame, priority, () -> {
+            if (observers.get(player) != observer) {
+                // Image was destroyed for this player after scheduling the packets
+                return Collections.emptyList();
+            }
+            return frame.getRenderPackets(player, observer.getStep());
+        });
+    }
+
+    /**
+     * Update spawned item frames for all players
+     * <p>
+     * Only has effect for partial observers. Item frames get spawned once the player is within the tile spawn distance
+     * and destroyed once the player is further than that distance plus a small margin.
+     */
+    public void updateTiles() {
+        FakeItemFrame[] frames = this.frames;
+        if (frames == null) {
+            return;
         }
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        ImageRenderer renderer = plugin.getRenderer();
+        PacketScheduler packetScheduler = plugin.getPacketScheduler();
+        int tileSpawnDistance = renderer.getTileSpawnDistance();
+        double spawnDistanceSquared = (double) tileSpawnDistance * tileSpawnDistance;
+        double destroyDistance = tileSpawnDistance + TILE_DESTROY_MARGIN;
+        double destroyDistanceSquared = destroyDistance * destroyDistance;
 
-        // Send packets
-        tryToSendPackets(player, packets);
+        // Spawn or destroy item frames
+        for (ObserverRegistry.Observer observer : observers.getAll()) {
+            if (!observer.isPartial()) {
+                continue;
+            }
+            Player player = observer.getPlayer();
+            Location playerLocation = renderer.getPlayerLocation(player);
+            List<FakeItemFrame> destroyedFrames = new ArrayList<>();
+            List<PacketContainer> destroyPackets = new ArrayList<>();
+            for (FakeItemFrame frame : frames) {
+                double priority = getSendPriority(frame, playerLocation);
+                if (priority <= spawnDistanceSquared) {
+                    if (observer.setSpawned(frame, true)) {
+                        scheduleSpawn(player, observer, frame, priority, 0);
+                    }
+                } else if (priority > destroyDistanceSquared && observer.setSpawned(frame, false)) {
+                    destroyedFrames.add(frame);
+                    destroyPackets.add(frame.getDestroyPacket());
+                }
+            }
+            if (!destroyedFrames.isEmpty()) {
+                packetScheduler.cancelAndSend(player, destroyedFrames.toArray(new FakeItemFrame[0]), destroyPackets);
+                LOGGER.fine(
+                    "Destroyed " + destroyedFrames.size() + " far FakeItemFrame(s) for Player#" + player.getName()
+                );
+            }
+        }
     }
 
     /**
      * Destroy image for all players
+     * <p>
+     * Once destroyed, the image cannot be spawned again.
      */
     public void destroy() {
-        if (frames != null) {
+        boolean isLoaded;
+        synchronized (this) {
+            destroyed = true;
+            isLoaded = (frames != null || loading);
+        }
+        if (isLoaded) {
             destroy(null);
         }
     }
@@ -477,31 +1001,46 @@ public class FakeImage extends FakeEntity {
             (player == null ? "all players" : "Player#" + player.getName())
         );
 
+        // Remove player from observers
+        // NOTE: Item frames are read beforehand, as the instance can get invalidated once there are no more observers
+        FakeItemFrame[] frames = this.frames;
+        List<ObserverRegistry.Observer> targets = new ArrayList<>();
+        synchronized (this) {
+            if (player == null) {
+                pendingObservers.clear();
+            } else {
+                pendingObservers.remove(player);
+            }
+            cancelLoadIfUnobserved();
+        }
+        if (player == null) {
+            targets.addAll(Arrays.asList(observers.clear()));
+        } else {
+            ObserverRegistry.Observer observer = observers.get(player);
+            observers.remove(player);
+            if (observer != null) {
+                targets.add(observer);
+            }
+        }
+
         // Send packets to destroy item frames
+        // NOTE: Pending spawn packets are cancelled so they cannot arrive after the destroy packets
         if (frames != null) {
-            Set<Player> targets = (player == null) ? observingPlayers : Collections.singleton(player);
-            for (Player target : targets) {
-                String targetName = target.getName();
+            PacketScheduler packetScheduler = YamipaPlugin.getInstance().getPacketScheduler();
+            for (ObserverRegistry.Observer target : targets) {
+                String targetName = target.getPlayer().getName();
                 List<PacketContainer> packets = new ArrayList<>();
                 for (FakeItemFrame frame : frames) {
+                    if (!target.isSpawned(frame)) continue;
                     packets.add(frame.getDestroyPacket());
                     LOGGER.fine("Destroyed FakeItemFrame#" + frame.getId() + " for Player#" + targetName);
                 }
-                tryToSendPackets(target, packets);
+                packetScheduler.cancelAndSend(target.getPlayer(), frames, packets);
             }
         }
 
-        // Remove player from observing players
-        if (player == null) {
-            observingPlayers.clear();
-        } else {
-            observingPlayers.remove(player);
-        }
-
         // Invalidate instance (if no more players)
-        if (observingPlayers.isEmpty()) {
-            invalidate();
-        }
+        invalidateIfUnobserved();
     }
 
     /**
@@ -509,29 +1048,55 @@ public class FakeImage extends FakeEntity {
      * @param player Player instance
      */
     public void notifyPlayerQuit(@NotNull Player player) {
-        observingPlayers.remove(player);
-        if (observingPlayers.isEmpty()) {
-            invalidate();
+        synchronized (this) {
+            pendingObservers.remove(player);
+            cancelLoadIfUnobserved();
         }
+        observers.remove(player);
+        invalidateIfUnobserved();
     }
 
     /**
-     * Invalidate instance
+     * Cancel render job if no player is waiting for it
      * <p>
-     * Removes all item frames associated with this image, among other things.
+     * NOTE: Must be called while holding the lock of this instance
      */
-    private void invalidate() {
-        // Destroy animation task
-        if (task != null) {
-            task.cancel(true);
-            task = null;
+    private void cancelLoadIfUnobserved() {
+        if (!loading || !pendingObservers.isEmpty() || !observers.isEmpty()) {
+            return;
+        }
+        ImageFile file = getFile();
+        if (file != null && YamipaPlugin.getInstance().getRenderQueue().cancel(file, this)) {
+            loading = false;
+            LOGGER.fine("Cancelled loading of FakeImage#(" + location + "," + face + ")");
+        }
+    }
+
+    /**
+     * Invalidate instance if unobserved
+     * <p>
+     * Removes all item frames associated with this image, among other things, unless the instance is being loaded or
+     * there are players observing it (or waiting for it).
+     * <p>
+     * NOTE: Observers are only added while holding the lock of this instance, so none can join in between.
+     */
+    private synchronized void invalidateIfUnobserved() {
+        if (loading || !pendingObservers.isEmpty() || !observers.isEmpty() || frames == null) {
+            return;
+        }
+
+        // Stop animation
+        if (animating) {
+            YamipaPlugin.getInstance().getAnimationClock().unregister(this, delay);
+            animating = false;
             currentStep = -1;
-            LOGGER.fine("Destroyed animation task for FakeImage#(" + location + "," + face + ")");
+            numOfTicks = 0;
+            LOGGER.fine("Stopped animation of FakeImage#(" + location + "," + face + ")");
         }
 
         // Free array of fake item frames
         frames = null;
-        loading = false;
+        animatedFrames = null;
         LOGGER.fine("Invalidated FakeImage#(" + location + "," + face + ")");
 
         // Notify invalidation to source ImageFile
@@ -543,21 +1108,82 @@ public class FakeImage extends FakeEntity {
 
     /**
      * Send next animation step to all registered players
+     * <p>
+     * The animation rate for each player depends on their distance to the image.
+     * Players who cannot see the image do not receive animation steps.
+     * All rates are further reduced when the server is under pressure.
+     * <p>
+     * Called by {@link AnimationClock} every {@link #getDelay()} ticks.
      */
-    private void nextStep() {
-        currentStep = (currentStep + 1) % numOfSteps;
-        try {
-            for (Player player : observingPlayers) {
-                List<PacketContainer> packets = new ArrayList<>();
-                for (FakeItemFrame frame : frames) {
-                    packets.addAll(frame.getRenderPackets(player, currentStep));
+    void nextStep() {
+        FakeItemFrame[] animatedFrames = this.animatedFrames;
+        if (animatedFrames == null) {
+            return; // Image was invalidated
+        }
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        ImageRenderer renderer = plugin.getRenderer();
+
+        // Advance animation step
+        // NOTE: Synced steps only depend on the clock, so copies of the same image are always in phase
+        if (renderer.isAnimationSyncEnabled()) {
+            numOfTicks = plugin.getAnimationClock().getCurrentTick() / delay;
+            currentStep = (int) (numOfTicks % numOfSteps);
+        } else {
+            currentStep = (currentStep + 1) % numOfSteps;
+            numOfTicks++;
+        }
+        PacketScheduler packetScheduler = plugin.getPacketScheduler();
+        int stepDivisor = plugin.getAnimationThrottle().getStepDivisor();
+
+        // Send step to observers
+        // NOTE: Iterates over a snapshot, so observers can join or leave meanwhile without dropping the step
+        for (ObserverRegistry.Observer observer : observers.getAll()) {
+            if (observer.isHidden()) {
+                continue;
+            }
+            Player player = observer.getPlayer();
+
+            // Get animation rate for player
+            Location playerLocation = renderer.getPlayerLocation(player);
+            double distanceSquared = Objects.equals(center.getWorld(), playerLocation.getWorld()) ?
+                center.distanceSquared(playerLocation) :
+                Double.MAX_VALUE;
+            int rate = renderer.getAnimationRate(distanceSquared) * stepDivisor;
+            if (rate == 0 || numOfTicks % rate != 0) {
+                continue;
+            }
+
+            // Get step currently displayed by player
+            // NOTE: Updated before building packets so pending jobs are sent using the latest step
+            int fromStep = observer.getStep();
+            if (fromStep == currentStep) {
+                continue;
+            }
+            observer.setStep(currentStep);
+
+            List<PacketContainer> packets = new ArrayList<>();
+            for (FakeItemFrame frame : animatedFrames) {
+                // Frames out of range are not animated
+                if (!observer.isSpawned(frame)) {
+                    continue;
+                }
+
+                // Frame will get the latest step once its pending packets are sent
+                if (packetScheduler.isPending(player, frame)) {
+                    continue;
                 }
-                tryToSendPackets(player, packets);
+
+                // Defer frames that need full pixels to avoid saturating the player connection
+                if (frame.hasPendingPixels(player, fromStep, currentStep)) {
+                    scheduleRender(player, observer, frame, getSendPriority(frame, playerLocation));
+                    continue;
+                }
+
+                packets.addAll(frame.getStepPackets(player, fromStep, currentStep));
+            }
+            if (!packets.isEmpty()) {
+                packetScheduler.send(player, packets);
             }
-        } catch (ConcurrentModificationException e) {
-            // We can safely ignore this exception as it will just result
-            // in a dropped step (all `observingPlayers` modifications are
-            // called from the same thread).
         }
     }
 }
@@ -7,18 +7,19 @@ import io.josemmo.bukkit.plugin.packets.SpawnEntityPacket;
 import io.josemmo.bukkit.plugin.utils.Internals;
 import io.josemmo.bukkit.plugin.utils.Logger;
 import org.bukkit.Location;
-import org.bukkit.Material;
 import org.bukkit.Rotation;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.MapMeta;
 import org.jetbrains.annotations.NotNull;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class FakeItemFrame extends FakeEntity {
     public static final int MIN_FRAME_ID = Integer.MAX_VALUE / 4;
@@ -31,7 +32,9 @@ public class FakeItemFrame extends FakeEntity {
     private final BlockFace face;
     private final Rotation rotation;
     private final boolean glowing;
-    private final FakeMap[] maps;
+    private volatile FakeMap[] maps;
+    private final AtomicReference<Map.Entry<FakeMap, EntityMetadataPacket>> lastMetadataPacket =
+        new AtomicReference<>();
 
     /**
      * Get next unused item frame ID
@@ -78,6 +81,26 @@ public class FakeItemFrame extends FakeEntity {
         return id;
     }
 
+    /**
+     * Get frame location
+     * @return Frame location
+     */
+    public @NotNull Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Set maps
+     * <p>
+     * Used for replacing preview maps once all animation steps have been rendered. Players must then receive the
+     * render packets of their current step again.
+     * @param maps Fake maps to animate
+     */
+    public void setMaps(@NotNull FakeMap[] maps) {
+        this.maps = maps;
+        LOGGER.fine("Replaced maps of FakeItemFrame#" + id + " with " + maps.length + " FakeMap(s)");
+    }
+
     /**
      * Get entity spawn packet
      * @return Spawn packet
@@ -131,39 +154,112 @@ public class FakeItemFrame extends FakeEntity {
         return framePacket;
     }
 
+    /**
+     * Get entity metadata packet
+     * <p>
+     * The latest built packet is reused for all players displaying the same map.
+     * @param  map Fake map to attach
+     * @return     Entity metadata packet
+     */
+    private @NotNull EntityMetadataPacket getMetadataPacket(@NotNull FakeMap map) {
+        Map.Entry<FakeMap, EntityMetadataPacket> entry = lastMetadataPacket.get();
+        if (entry != null && entry.getKey() == map) {
+            return entry.getValue();
+        }
+
+        EntityMetadataPacket metadataPacket = new EntityMetadataPacket();
+        metadataPacket.setId(id)
+            .setInvisible(true)
+            .setItem(map.getMapItem())
+            .setRotation(rotation)
+            .build();
+        lastMetadataPacket.set(new AbstractMap.SimpleImmutableEntry<>(map, metadataPacket));
+        return metadataPacket;
+    }
+
     /**
      * Get frame of animation packets
      * @param player Player who is expected to receive packets (for caching reasons)
      * @param step   Map step
      */
-    @SuppressWarnings("deprecation")
     public @NotNull List<PacketContainer> getRenderPackets(@NotNull Player player, int step) {
+        FakeMap[] maps = this.maps;
+        step = Math.min(step, maps.length-1);
         List<PacketContainer> packets = new ArrayList<>(2);
 
         // Enqueue map pixels packet (if needed)
-        boolean mustSendPixels = maps[step].requestResend(player);
+        // NOTE: Delta maps share the same ID, so their client-side pixels cannot be trusted
+        boolean mustSendPixels = maps[step].isDelta() || maps[step].requestResend(player);
         if (mustSendPixels) {
             packets.add(maps[step].getPixelsPacket());
         }
 
-        // Create and attach filled map
-        ItemStack itemStack = new ItemStack(Material.FILLED_MAP);
-        MapMeta itemStackMeta = Objects.requireNonNull((MapMeta) itemStack.getItemMeta());
-        itemStackMeta.setMapId(maps[step].getId());
-        itemStack.setItemMeta(itemStackMeta);
+        // Attach filled map
+        packets.add(getMetadataPacket(maps[step]));
 
-        // Build entity metadata packet
-        EntityMetadataPacket metadataPacket = new EntityMetadataPacket();
-        metadataPacket.setId(id)
-            .setInvisible(true)
-            .setItem(itemStack)
-            .setRotation(rotation)
-            .build();
-        packets.add(metadataPacket);
+        return packets;
+    }
+
+    /**
+     * Get packets for transitioning between animation steps
+     * @param player   Player who is expected to receive packets (for caching reasons)
+     * @param fromStep Map step currently displayed by the player
+     * @param toStep   Map step to display
+     */
+    public @NotNull List<PacketContainer> getStepPackets(@NotNull Player player, int fromStep, int toStep) {
+        FakeMap[] maps = this.maps;
+
+        // Nothing to do if step has not changed
+        if (maps[toStep] == maps[fromStep]) {
+            return Collections.emptyList();
+        }
+
+        // Regular maps only need to be swapped
+        if (!maps[toStep].isDelta()) {
+            return getRenderPackets(player, toStep);
+        }
 
+        // Delta maps only need the dirty areas of the next step when transitioning from the previous one
+        if (maps[(toStep == 0 ? maps.length : toStep) - 1] == maps[fromStep]) {
+            return maps[toStep].getDirtyPixelsPackets();
+        }
+
+        // Otherwise, they need the union of dirty areas from all steps in between, as the map ID never changes
+        List<MapArea> areas = new ArrayList<>();
+        int numOfPixels = 0;
+        for (int step=fromStep; step!=toStep;) {
+            int prevStep = step;
+            step = (step + 1) % maps.length;
+            if (maps[step] == maps[prevStep]) {
+                continue;
+            }
+            for (MapArea area : Objects.requireNonNull(maps[step].getDirtyAreas())) {
+                areas.add(area);
+                numOfPixels += area.size();
+            }
+        }
+        if (numOfPixels >= FakeMap.DIMENSION*FakeMap.DIMENSION) {
+            return Collections.singletonList(maps[toStep].getPixelsPacket());
+        }
+        List<PacketContainer> packets = new ArrayList<>(areas.size());
+        for (MapArea area : areas) {
+            packets.add(maps[toStep].getPixelsPacket(area));
+        }
         return packets;
     }
 
+    /**
+     * Has pending pixels
+     * @param  player   Player instance
+     * @param  fromStep Map step currently displayed by the player
+     * @param  toStep   Map step to display
+     * @return          Whether transitioning between steps requires sending the full pixels of a map to the player
+     */
+    public boolean hasPendingPixels(@NotNull Player player, int fromStep, int toStep) {
+        FakeMap[] maps = this.maps;
+        return (maps[toStep] != maps[fromStep]) && !maps[toStep].isDelta() && maps[toStep].mustResend(player);
+    }
+
     /**
      * Get destroy item frame packet
      * @return Destroy packet
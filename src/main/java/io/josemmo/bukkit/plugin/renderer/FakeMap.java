@@ -1,14 +1,22 @@
 package io.josemmo.bukkit.plugin.renderer;
 
+import com.comphenix.protocol.events.PacketContainer;
 import io.josemmo.bukkit.plugin.packets.MapDataPacket;
 import io.josemmo.bukkit.plugin.utils.Logger;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.MapMeta;
 import org.bukkit.map.MapPalette;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import java.awt.*;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -19,18 +27,23 @@ public class FakeMap extends FakeEntity {
     private static final int MIN_MAP_ID = Integer.MAX_VALUE / 4;
     private static final int MAX_MAP_ID = Integer.MAX_VALUE;
     private static final int RESEND_THRESHOLD = 60*5; // Seconds after sending pixels when resending should be avoided
+    private static final int AREA_OVERHEAD = 32; // Approximate size in bytes of an additional map data packet
     private static final Logger LOGGER = Logger.getLogger("FakeMap");
     private static final AtomicInteger LAST_MAP_ID = new AtomicInteger(MIN_MAP_ID);
     private static @Nullable FakeMap ERROR_INSTANCE;
     private final int id;
     private final byte[] pixels;
+    private final @Nullable MapArea[] dirtyAreas; // Changed areas since previous step (only for delta maps)
+    private volatile @Nullable MapDataPacket pixelsPacket;
+    private volatile @Nullable List<PacketContainer> dirtyPixelsPackets;
+    private volatile @Nullable ItemStack mapItem;
     private final ConcurrentMap<UUID, Long> lastPlayerSendTime = new ConcurrentHashMap<>();
 
     /**
      * Get next unused map ID
      * @return Next unused map ID
      */
-    private static int getNextId() {
+    public static int getNextId() {
         return LAST_MAP_ID.updateAndGet(lastId -> {
             if (lastId == MIN_MAP_ID) {
                 return MAX_MAP_ID;
@@ -77,6 +90,111 @@ public class FakeMap extends FakeEntity {
         return matrix;
     }
 
+    /**
+     * Get areas that differ between two arrays of pixels
+     * <p>
+     * Changed rows are grouped into horizontal bands, which get merged together whenever sending a single larger
+     * area is cheaper than sending an additional packet.
+     * @param  prevPixels Previous array of Minecraft color indexes
+     * @param  pixels     Current array of Minecraft color indexes
+     * @return            Dirty areas (empty if both arrays are identical)
+     */
+    public static @NotNull MapArea[] getDirtyAreas(byte[] prevPixels, byte[] pixels) {
+        List<MapArea> areas = new ArrayList<>();
+        int bandStartZ = -1;
+        int bandEndZ = -1;
+        int bandMinX = -1;
+        int bandMaxX = -1;
+        for (int z=0; z<DIMENSION; z++) {
+            // Find changed columns in row
+            int offset = z * DIMENSION;
+            int rowMinX = -1;
+            int rowMaxX = -1;
+            for (int x=0; x<DIMENSION; x++) {
+                if (prevPixels[offset+x] != pixels[offset+x]) {
+                    if (rowMinX < 0) rowMinX = x;
+                    rowMaxX = x;
+                }
+            }
+            if (rowMinX < 0) {
+                continue;
+            }
+
+            // Try to extend current band
+            if (bandStartZ >= 0) {
+                int mergedMinX = Math.min(bandMinX, rowMinX);
+                int mergedMaxX = Math.max(bandMaxX, rowMaxX);
+                int mergedCost = (mergedMaxX-mergedMinX+1) * (z-bandStartZ+1);
+                int splitCost = (bandMaxX-bandMinX+1) * (bandEndZ-bandStartZ+1) + (rowMaxX-rowMinX+1) + AREA_OVERHEAD;
+                if (mergedCost <= splitCost) {
+                    bandEndZ = z;
+                    bandMinX = mergedMinX;
+                    bandMaxX = mergedMaxX;
+                    continue;
+                }
+                areas.add(new MapArea(bandMinX, bandStartZ, bandMaxX-bandMinX+1, bandEndZ-bandStartZ+1));
+            }
+
+            // Start new band
+            bandStartZ = z;
+            bandEndZ = z;
+            bandMinX = rowMinX;
+            bandMaxX = rowMaxX;
+        }
+        if (bandStartZ >= 0) {
+            areas.add(new MapArea(bandMinX, bandStartZ, bandMaxX-bandMinX+1, bandEndZ-bandStartZ+1));
+        }
+        return areas.toArray(new MapArea[0]);
+    }
+
+    /**
+     * Convert animation steps to delta maps
+     * <p>
+     * All returned maps share the same map ID, and each step keeps track of the areas that changed since the previous
+     * one (with the first step being compared against the last one).
+     * Consecutive steps with no changes share the same instance.
+     * <p>
+     * NOTE: As clients keep a single canvas per map ID, every fake image must use its own copy of the returned maps
+     * (see {@link #copyDeltaSteps(FakeMap[], int)}), or images out of phase would corrupt each other's pixels.
+     * @param  steps Fake maps (one per animation step)
+     * @return       Delta fake maps
+     */
+    public static @NotNull FakeMap[] toDeltaSteps(@NotNull FakeMap[] steps) {
+        int id = steps[0].getId();
+        FakeMap[] deltaSteps = new FakeMap[steps.length];
+        for (int step=0; step<steps.length; step++) {
+            FakeMap prevMap = steps[(step == 0 ? steps.length : step) - 1];
+            MapArea[] dirtyAreas = getDirtyAreas(prevMap.pixels, steps[step].pixels);
+            if (step > 0 && dirtyAreas.length == 0) {
+                deltaSteps[step] = deltaSteps[step-1];
+            } else {
+                deltaSteps[step] = new FakeMap(id, steps[step].pixels, dirtyAreas);
+            }
+        }
+        return deltaSteps;
+    }
+
+    /**
+     * Copy delta maps using another map ID
+     * <p>
+     * Copies share their pixels and dirty areas with the original maps, so they are cheap to create.
+     * @param  deltaSteps Delta fake maps (one per animation step)
+     * @param  id         Map ID to use (see {@link #getNextId()})
+     * @return            Delta fake maps with the given map ID
+     */
+    public static @NotNull FakeMap[] copyDeltaSteps(@NotNull FakeMap[] deltaSteps, int id) {
+        FakeMap[] copies = new FakeMap[deltaSteps.length];
+        for (int step=0; step<deltaSteps.length; step++) {
+            FakeMap map = deltaSteps[step];
+            if (step > 0 && map == deltaSteps[step-1]) {
+                copies[step] = copies[step-1];
+            } else {
+                copies[step] = new FakeMap(id, map.pixels, Objects.requireNonNull(map.dirtyAreas));
+            }
+        }
+        return copies;
+    }
+
     /**
      * Class constructor
      * @param pixels   Array of Minecraft color indexes
@@ -92,6 +210,7 @@ public class FakeMap extends FakeEntity {
         for (int y=0; y<DIMENSION; y++) {
             System.arraycopy(pixels, startX+(startY+y)*scanSize, this.pixels, y*DIMENSION, DIMENSION);
         }
+        this.dirtyAreas = null;
 
         LOGGER.fine("Created FakeMap#" + this.id);
     }
@@ -103,9 +222,23 @@ public class FakeMap extends FakeEntity {
     public FakeMap(byte[] pixels) {
         this.id = getNextId();
         this.pixels = pixels;
+        this.dirtyAreas = null;
         LOGGER.fine("Created FakeMap#" + this.id);
     }
 
+    /**
+     * Class constructor
+     * @param id         Map ID (shared with other animation steps)
+     * @param pixels     Array of Minecraft color indexes
+     * @param dirtyAreas Changed areas since previous animation step
+     */
+    private FakeMap(int id, byte[] pixels, @NotNull MapArea[] dirtyAreas) {
+        this.id = id;
+        this.pixels = pixels;
+        this.dirtyAreas = dirtyAreas;
+        LOGGER.fine("Created delta FakeMap#" + this.id + " with " + dirtyAreas.length + " dirty area(s)");
+    }
+
     /**
      * Get map ID
      * @return Map ID
@@ -122,38 +255,130 @@ public class FakeMap extends FakeEntity {
         return pixels;
     }
 
+    /**
+     * Is delta map
+     * @return Whether this map shares its ID with other animation steps
+     */
+    public boolean isDelta() {
+        return (dirtyAreas != null);
+    }
+
+    /**
+     * Must re-send map pixels
+     * <p>
+     * Unlike {@link #requestResend(Player)}, this method does not update the latest send timestamp.
+     * @param  player Player who is expected to receive pixels
+     * @return        Whether player needs to receive pixels again
+     */
+    public boolean mustResend(@NotNull Player player) {
+        long now = Instant.now().getEpochSecond();
+        long last = lastPlayerSendTime.getOrDefault(player.getUniqueId(), 0L);
+        return (now-last) > RESEND_THRESHOLD || (player.getLastPlayed()/1000) >= last;
+    }
+
     /**
      * Request re-send of map pixels
      * @param  player Player who is expected to receive pixels
      * @return        Whether re-send authorization was granted or not
      */
     public boolean requestResend(@NotNull Player player) {
-        UUID uuid = player.getUniqueId();
-        long now = Instant.now().getEpochSecond();
-
         // Has enough time passed since last re-send?
-        long last = lastPlayerSendTime.getOrDefault(uuid, 0L);
-        if ((now-last) <= RESEND_THRESHOLD && (player.getLastPlayed()/1000) < last) {
+        if (!mustResend(player)) {
             return false;
         }
 
         // Authorize re-send and update latest timestamp
-        lastPlayerSendTime.put(uuid, now);
+        lastPlayerSendTime.put(player.getUniqueId(), Instant.now().getEpochSecond());
         LOGGER.fine("Granted sending pixels for FakeMap#" + id + " to Player#" + player.getName());
         return true;
     }
 
     /**
      * Get map pixels packet
+     * <p>
+     * The packet is built once and then shared between all players and item frames using this map.
      * @return Map pixels packet
      */
     public @NotNull MapDataPacket getPixelsPacket() {
+        MapDataPacket mapDataPacket = pixelsPacket;
+        if (mapDataPacket == null) {
+            mapDataPacket = new MapDataPacket();
+            mapDataPacket.setId(id)
+                .setScale(0) // Fully zoomed-in
+                .setLocked(true)
+                .setArea(DIMENSION, DIMENSION, 0, 0)
+                .setPixels(pixels);
+            pixelsPacket = mapDataPacket;
+        }
+        return mapDataPacket;
+    }
+
+    /**
+     * Get map pixels packet for a given area
+     * @param  area Map area
+     * @return      Map pixels packet
+     */
+    public @NotNull MapDataPacket getPixelsPacket(@NotNull MapArea area) {
+        int columns = area.getColumns();
+        byte[] areaPixels = new byte[area.size()];
+        for (int row=0; row<area.getRows(); row++) {
+            System.arraycopy(pixels, (area.getZ()+row)*DIMENSION+area.getX(), areaPixels, row*columns, columns);
+        }
+
         MapDataPacket mapDataPacket = new MapDataPacket();
         mapDataPacket.setId(id)
             .setScale(0) // Fully zoomed-in
             .setLocked(true)
-            .setArea(DIMENSION, DIMENSION, 0, 0)
-            .setPixels(pixels);
+            .setArea(columns, area.getRows(), area.getX(), area.getZ())
+            .setPixels(areaPixels);
         return mapDataPacket;
     }
+
+    /**
+     * Get areas that changed since previous animation step
+     * @return Changed areas or NULL if not a delta map
+     */
+    public @Nullable MapArea[] getDirtyAreas() {
+        return dirtyAreas;
+    }
+
+    /**
+     * Get packets for areas that changed since previous animation step
+     * <p>
+     * Packets are built once and then shared between all players and item frames using this map.
+     * @return Map pixels packets (empty if not a delta map)
+     */
+    public @NotNull List<PacketContainer> getDirtyPixelsPackets() {
+        List<PacketContainer> packets = dirtyPixelsPackets;
+        if (packets == null) {
+            packets = new ArrayList<>();
+            if (dirtyAreas != null) {
+                for (MapArea area : dirtyAreas) {
+                    packets.add(getPixelsPacket(area));
+                }
+            }
+            packets = Collections.unmodifiableList(packets);
+            dirtyPixelsPackets = packets;
+        }
+        return packets;
+    }
+
+    /**
+     * Get filled map item
+     * <p>
+     * The item is built once and then shared between all item frames using this map.
+     * @return Filled map item
+     */
+    @SuppressWarnings("deprecation")
+    public @NotNull ItemStack getMapItem() {
+        ItemStack itemStack = mapItem;
+        if (itemStack == null) {
+            itemStack = new ItemStack(Material.FILLED_MAP);
+            MapMeta itemStackMeta = Objects.requireNonNull((MapMeta) itemStack.getItemMeta());
+            itemStackMeta.setMapId(id);
+            itemStack.setItemMeta(itemStackMeta);
+            mapItem = itemStack;
+        }
+        return itemStack;
+    }
 }
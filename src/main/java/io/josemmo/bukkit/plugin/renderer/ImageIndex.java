@@ -0,0 +1,240 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import io.josemmo.bukkit.plugin.utils.LongHashMap;
+import org.bukkit.Location;
+import org.bukkit.block.BlockFace;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Spatial index of fake images.
+ * <p>
+ * Every world is divided into a grid of 16x16 block cells identified by their packed coordinates. Images are added to
+ * all the cells covered by their full extent, so area queries only need to visit the cells overlapping the area.
+ * <p>
+ * Additionally, every block covered by an image is indexed by its packed coordinates and block face, so finding the
+ * image at a given block is a single lookup. Blocks keep all images covering them (in order of addition), so removing
+ * an image from a block shared with another image leaves the latter indexed.
+ */
+public class ImageIndex {
+    private static final int CELL_BITS = 4; // 16x16 blocks per cell
+    private final ConcurrentMap<String, LongHashMap<Set<FakeImage>>> worlds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongHashMap<FakeImage[]>[]> blocks = new ConcurrentHashMap<>();
+
+    /**
+     * Pack cell coordinates
+     * @param  cellX Cell X coordinate
+     * @param  cellZ Cell Z coordinate
+     * @return       Cell key
+     */
+    private static long packCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+
+    /**
+     * Pack block coordinates
+     * @param  x Block X coordinate
+     * @param  y Block Y coordinate
+     * @param  z Block Z coordinate
+     * @return   Block key
+     */
+    private static long packBlock(int x, int y, int z) {
+        return ((long) (x & 0x3ffffff) << 38) | ((long) (z & 0x3ffffff) << 12) | (y & 0xfff);
+    }
+
+    /**
+     * Add image
+     * @param image Fake image instance
+     */
+    @SuppressWarnings("unchecked")
+    public void add(@NotNull FakeImage image) {
+        // Add to blocks index
+        LongHashMap<FakeImage[]>[] faces = blocks.computeIfAbsent(image.getWorldName(), __ -> {
+            LongHashMap<FakeImage[]>[] newFaces = new LongHashMap[BlockFace.values().length];
+            for (int i=0; i<newFaces.length; i++) {
+                newFaces[i] = new LongHashMap<>();
+            }
+            return newFaces;
+        });
+        LongHashMap<FakeImage[]> faceBlocks = faces[image.getBlockFace().ordinal()];
+        synchronized (faceBlocks) {
+            for (Location location : image.getAllLocations()) {
+                long key = packBlock(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                FakeImage[] blockImages = faceBlocks.get(key);
+                if (blockImages == null) {
+                    faceBlocks.put(key, new FakeImage[] {image});
+                } else {
+                    FakeImage[] newBlockImages = Arrays.copyOf(blockImages, blockImages.length+1);
+                    newBlockImages[blockImages.length] = image;
+                    faceBlocks.put(key, newBlockImages);
+                }
+            }
+        }
+
+        // Add to cells index
+        LongHashMap<Set<FakeImage>> cells = worlds.computeIfAbsent(image.getWorldName(), __ -> new LongHashMap<>());
+        synchronized (cells) {
+            for (int cellX=image.getMinX()>>CELL_BITS; cellX<=image.getMaxX()>>CELL_BITS; cellX++) {
+                for (int cellZ=image.getMinZ()>>CELL_BITS; cellZ<=image.getMaxZ()>>CELL_BITS; cellZ++) {
+                    long key = packCell(cellX, cellZ);
+                    Set<FakeImage> cell = cells.get(key);
+                    if (cell == null) {
+                        cell = new HashSet<>();
+                        cells.put(key, cell);
+                    }
+                    cell.add(image);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove image
+     * @param image Fake image instance
+     */
+    public void remove(@NotNull FakeImage image) {
+        // Remove from blocks index
+        LongHashMap<FakeImage[]>[] faces = blocks.get(image.getWorldName());
+        if (faces != null) {
+            LongHashMap<FakeImage[]> faceBlocks = faces[image.getBlockFace().ordinal()];
+            synchronized (faceBlocks) {
+                for (Location location : image.getAllLocations()) {
+                    long key = packBlock(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+                    FakeImage[] blockImages = faceBlocks.get(key);
+                    if (blockImages == null) continue;
+                    FakeImage[] newBlockImages = Arrays.stream(blockImages)
+                        .filter(blockImage -> blockImage != image)
+                        .toArray(FakeImage[]::new);
+                    if (newBlockImages.length == 0) {
+                        faceBlocks.remove(key);
+                    } else {
+                        faceBlocks.put(key, newBlockImages);
+                    }
+                }
+            }
+        }
+
+        // Remove from cells index
+        LongHashMap<Set<FakeImage>> cells = worlds.get(image.getWorldName());
+        if (cells == null) {
+            return;
+        }
+        synchronized (cells) {
+            for (int cellX=image.getMinX()>>CELL_BITS; cellX<=image.getMaxX()>>CELL_BITS; cellX++) {
+                for (int cellZ=image.getMinZ()>>CELL_BITS; cellZ<=image.getMaxZ()>>CELL_BITS; cellZ++) {
+                    long key = packCell(cellX, cellZ);
+                    Set<FakeImage> cell = cells.get(key);
+                    if (cell != null && cell.remove(image) && cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all images
+     */
+    public void clear() {
+        worlds.clear();
+        blocks.clear();
+    }
+
+    /**
+     * Get image at block
+     * @param  location Block location
+     * @param  face     Block face
+     * @return          Fake image instance (the latest added if several) or NULL if not found
+     */
+    public @Nullable FakeImage getImage(@NotNull Location location, @NotNull BlockFace face) {
+        if (location.getWorld() == null) {
+            return null;
+        }
+        LongHashMap<FakeImage[]>[] faces = blocks.get(location.getWorld().getName());
+        if (faces == null) {
+            return null;
+        }
+        LongHashMap<FakeImage[]> faceBlocks = faces[face.ordinal()];
+        long key = packBlock(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        FakeImage[] blockImages;
+        synchronized (faceBlocks) {
+            blockImages = faceBlocks.get(key);
+        }
+        return (blockImages == null) ? null : blockImages[blockImages.length-1];
+    }
+
+    /**
+     * Get images in area
+     * @param  worldName World name
+     * @param  minX      Minimum X coordinate
+     * @param  maxX      Maximum X coordinate
+     * @param  minZ      Minimum Z coordinate
+     * @param  maxZ      Maximum Z coordinate
+     * @return           Set of images with at least one block inside the area
+     */
+    public @NotNull Set<FakeImage> getImages(@NotNull String worldName, int minX, int maxX, int minZ, int maxZ) {
+        Set<FakeImage> response = new HashSet<>();
+        LongHashMap<Set<FakeImage>> cells = worlds.get(worldName);
+        if (cells == null) {
+            return response;
+        }
+        int minCellX = minX >> CELL_BITS;
+        int maxCellX = maxX >> CELL_BITS;
+        int minCellZ = minZ >> CELL_BITS;
+        int maxCellZ = maxZ >> CELL_BITS;
+
+        synchronized (cells) {
+            // Visit non-empty cells instead of the entire area (if that's cheaper)
+            long numOfCellsInArea = (long) (maxCellX-minCellX+1) * (maxCellZ-minCellZ+1);
+            if (numOfCellsInArea > cells.size()) {
+                for (long key : cells.keys()) {
+                    int cellX = (int) (key >> 32);
+                    int cellZ = (int) key;
+                    if (cellX < minCellX || cellX > maxCellX || cellZ < minCellZ || cellZ > maxCellZ) continue;
+                    addIntersecting(response, cells.get(key), minX, maxX, minZ, maxZ);
+                }
+                return response;
+            }
+
+            // Visit cells in area
+            for (int cellX=minCellX; cellX<=maxCellX; cellX++) {
+                for (int cellZ=minCellZ; cellZ<=maxCellZ; cellZ++) {
+                    Set<FakeImage> cell = cells.get(packCell(cellX, cellZ));
+                    if (cell != null) {
+                        addIntersecting(response, cell, minX, maxX, minZ, maxZ);
+                    }
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Add images intersecting with area
+     * @param response Set of images to add to
+     * @param cell     Candidate images
+     * @param minX     Minimum X coordinate
+     * @param maxX     Maximum X coordinate
+     * @param minZ     Minimum Z coordinate
+     * @param maxZ     Maximum Z coordinate
+     */
+    private static void addIntersecting(
+        @NotNull Set<FakeImage> response,
+        @NotNull Set<FakeImage> cell,
+        int minX,
+        int maxX,
+        int minZ,
+        int maxZ
+    ) {
+        for (FakeImage image : cell) {
+            if (image.intersects(minX, maxX, minZ, maxZ)) {
+                response.add(image);
+            }
+        }
+    }
+}
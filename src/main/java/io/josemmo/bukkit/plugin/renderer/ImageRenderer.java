@@ -3,6 +3,7 @@ package io.josemmo.bukkit.plugin.renderer;
 import io.josemmo.bukkit.plugin.YamipaPlugin;
 import io.josemmo.bukkit.plugin.utils.CsvConfiguration;
 import io.josemmo.bukkit.plugin.utils.Logger;
+import io.josemmo.bukkit.plugin.utils.LongHashMap;
 import org.bukkit.*;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Entity;
@@ -22,31 +23,98 @@ import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class ImageRenderer implements Listener {
     private static final long SAVE_INTERVAL = 20L * 90; // In server ticks
+    private static final long CULLING_INTERVAL = 10L; // In server ticks
+    private static final long DESPAWN_INTERVAL = 20L; // In server ticks
+    private static final long TILES_INTERVAL = 10L; // In server ticks
+    private static final long LOCATIONS_INTERVAL = 1L; // In server ticks
+    private static final long RADIUS_INTERVAL = 20L * 5; // In server ticks
+    private static final int MAX_VISIBILITY_CHECKS = 100; // Per culling run
+    private static final int MAX_VISIBILITY_PLAYERS = 10; // Players whose images are looked up per culling run
+    private static final double VELOCITY_WEIGHT = 0.5; // Weight of latest world area change in velocity average
+    private static final int MAX_PREFETCH_AREAS = 4; // Maximum distance in world areas to predict
     private static final Logger LOGGER = Logger.getLogger("ImageRenderer");
     private final Path configPath;
     private final boolean animateImages;
+    private final boolean deltaAnimations;
+    private final boolean syncAnimations;
     private final int maxImageDimension;
+    private final int fullAnimationDistance;
+    private final int reducedAnimationDistance;
+    private final int reducedAnimationRate;
+    private final boolean cullHiddenImages;
+    private final int despawnMargin;
+    private final long despawnDelay;
+    private final long prefetchTime;
+    private final int tileSpawnDistance;
     private BukkitTask saveTask;
+    private @Nullable BukkitTask cullingTask;
+    private @Nullable BukkitTask despawnTask;
+    private @Nullable BukkitTask tilesTask;
+    private @Nullable BukkitTask radiusTask;
+    private @Nullable BukkitTask locationsTask;
     private final AtomicBoolean hasConfigChanged = new AtomicBoolean(false);
-    private final ConcurrentMap<WorldAreaId, Set<FakeImage>> images = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongHashMap<Set<FakeImage>>> images = new ConcurrentHashMap<>();
+    private final ImageIndex index = new ImageIndex();
+    private final Set<FakeImage> tiledImages = ConcurrentHashMap.newKeySet();
     private final ConcurrentMap<UUID, Integer> imagesCountByPlayer = new ConcurrentHashMap<>();
-    private final Map<Player, WorldAreaId> playersLocation = new HashMap<>();
+    private final Map<Player, PlayerArea> playersLocation = new HashMap<>(); // Guarded by "playersLocation"
+    private final Map<String, LongHashMap<Set<Player>>> playersByArea = new HashMap<>(); // Guarded by "playersLocation"
+    private final ConcurrentMap<Player, PlayerMove> pendingMoves = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Player, Location> playerLocations = new ConcurrentHashMap<>(); // Main thread writes
+    private final Deque<Player> pendingVisibilityPlayers = new ArrayDeque<>(); // Main thread only
+    private final Deque<Map.Entry<Player, FakeImage>> pendingVisibilityChecks = new ArrayDeque<>(); // Main thread only
+    private boolean isRunning = false; // Guarded by "playersLocation"
 
     /**
      * Class constructor
-     * @param configPath        Path to configuration file
-     * @param animateImages     Whether to animate images or not
-     * @param maxImageDimension Maximum image dimension in blocks
+     * @param configPath               Path to configuration file
+     * @param animateImages            Whether to animate images or not
+     * @param deltaAnimations          Whether to only send changed pixels on each animation step
+     * @param syncAnimations           Whether to play all placements of the same animated image in sync
+     * @param maxImageDimension        Maximum image dimension in blocks
+     * @param fullAnimationDistance    Maximum distance in blocks for animating images at full rate
+     * @param reducedAnimationDistance Maximum distance in blocks for animating images at reduced rate
+     * @param reducedAnimationRate     Send only one of every N animation steps at reduced rate
+     * @param cullHiddenImages         Whether to stop animating images that players cannot see
+     * @param despawnMargin            Distance in chunks beyond view distance before destroying images
+     * @param despawnDelay             Minimum time in milliseconds before destroying images out of view distance
+     * @param prefetchTime             Time in milliseconds ahead to prefetch images along player movement
+     * @param tileSpawnDistance        Maximum distance in blocks to spawn item frames (<code>0</code> for no limit)
      */
-    public ImageRenderer(@NotNull Path configPath, boolean animateImages, int maxImageDimension) {
+    public ImageRenderer(
+        @NotNull Path configPath,
+        boolean animateImages,
+        boolean deltaAnimations,
+        boolean syncAnimations,
+        int maxImageDimension,
+        int fullAnimationDistance,
+        int reducedAnimationDistance,
+        int reducedAnimationRate,
+        boolean cullHiddenImages,
+        int despawnMargin,
+        long despawnDelay,
+        long prefetchTime,
+        int tileSpawnDistance
+    ) {
         this.configPath = configPath;
         this.animateImages = animateImages;
+        this.deltaAnimations = deltaAnimations;
+        this.syncAnimations = syncAnimations;
         this.maxImageDimension = maxImageDimension;
+        this.fullAnimationDistance = fullAnimationDistance;
+        this.reducedAnimationDistance = reducedAnimationDistance;
+        this.reducedAnimationRate = Math.max(reducedAnimationRate, 1);
+        this.cullHiddenImages = cullHiddenImages;
+        this.despawnMargin = Math.max(despawnMargin, 0);
+        this.despawnDelay = Math.max(despawnDelay, 0);
+        this.prefetchTime = Math.max(prefetchTime, 0);
+        this.tileSpawnDistance = Math.max(tileSpawnDistance, 0);
     }
 
     /**
@@ -57,6 +125,27 @@ public class ImageRenderer implements Listener {
         return animateImages;
     }
 
+    /**
+     * Is delta animation enabled
+     * <p>
+     * When enabled, each animated tile uses a single map whose changed pixels get sent on every step.
+     * @return Is delta animation enabled
+     */
+    public boolean isDeltaAnimationEnabled() {
+        return deltaAnimations;
+    }
+
+    /**
+     * Is animation sync enabled
+     * <p>
+     * When enabled, the animation step of all images is derived from the animation clock, so all placements of the
+     * same animated image are in phase and share the same packets.
+     * @return Is animation sync enabled
+     */
+    public boolean isAnimationSyncEnabled() {
+        return syncAnimations;
+    }
+
     /**
      * Get maximum image dimension
      * @return Maximum image dimension in blocks
@@ -65,14 +154,76 @@ public class ImageRenderer implements Listener {
         return maxImageDimension;
     }
 
+    /**
+     * Get tile spawn distance
+     * <p>
+     * When enabled, players only receive the item frames of an image that are close enough to them.
+     * @return Maximum distance in blocks to spawn item frames, <code>0</code> for no limit
+     */
+    public int getTileSpawnDistance() {
+        return tileSpawnDistance;
+    }
+
+    /**
+     * Get animation rate for a player
+     * <p>
+     * Players close to an image receive all animation steps, players at mid-range only receive one of every few steps
+     * and far-away players see the image frozen on its last received step.
+     * @param  distanceSquared Squared distance in blocks from the player to the image
+     * @return                 Send one of every N animation steps, <code>0</code> for frozen
+     */
+    public int getAnimationRate(double distanceSquared) {
+        if (distanceSquared <= (double) fullAnimationDistance*fullAnimationDistance) {
+            return 1;
+        }
+        if (distanceSquared <= (double) reducedAnimationDistance*reducedAnimationDistance) {
+            return reducedAnimationRate;
+        }
+        return 0;
+    }
+
     /**
      * Start instance
      */
     public void start() {
+        synchronized (playersLocation) {
+            isRunning = true;
+        }
         loadConfig();
         YamipaPlugin plugin = YamipaPlugin.getInstance();
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
         saveTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::saveConfig, SAVE_INTERVAL, SAVE_INTERVAL);
+        locationsTask = Bukkit.getScheduler().runTaskTimer(
+            plugin,
+            this::updatePlayerLocations,
+            LOCATIONS_INTERVAL,
+            LOCATIONS_INTERVAL
+        );
+        if (cullHiddenImages) {
+            cullingTask = Bukkit.getScheduler().runTaskTimer(
+                plugin,
+                this::updateVisibility,
+                CULLING_INTERVAL,
+                CULLING_INTERVAL
+            );
+        }
+        if (tileSpawnDistance > 0) {
+            tilesTask = Bukkit.getScheduler().runTaskTimerAsynchronously(
+                plugin,
+                this::updateTiles,
+                TILES_INTERVAL,
+                TILES_INTERVAL
+            );
+        }
+        radiusTask = Bukkit.getScheduler().runTaskTimer(plugin, this::updateRadiuses, RADIUS_INTERVAL, RADIUS_INTERVAL);
+        if (hasDespawnHysteresis()) {
+            despawnTask = Bukkit.getScheduler().runTaskTimer(
+                plugin,
+                this::despawnLingeringImages,
+                DESPAWN_INTERVAL,
+                DESPAWN_INTERVAL
+            );
+        }
     }
 
     /**
@@ -81,11 +232,50 @@ public class ImageRenderer implements Listener {
     public void stop() {
         HandlerList.unregisterAll(this);
 
+        // Stop processing player movements
+        pendingMoves.clear();
+        synchronized (playersLocation) {
+            isRunning = false;
+            playersLocation.clear();
+            playersByArea.clear();
+        }
+
+        // Stop culling images
+        if (cullingTask != null) {
+            cullingTask.cancel();
+            cullingTask = null;
+        }
+        pendingVisibilityPlayers.clear();
+        pendingVisibilityChecks.clear();
+
+        // Stop updating tiles
+        if (tilesTask != null) {
+            tilesTask.cancel();
+            tilesTask = null;
+        }
+
+        // Stop updating neighborhood radiuses
+        if (radiusTask != null) {
+            radiusTask.cancel();
+            radiusTask = null;
+        }
+
+        // Stop despawning lingering images
+        if (despawnTask != null) {
+            despawnTask.cancel();
+            despawnTask = null;
+        }
+
+        // Stop tracking player locations
+        if (locationsTask != null) {
+            locationsTask.cancel();
+            locationsTask = null;
+        }
+        playerLocations.clear();
+
         // Destroy images from remote clients
-        for (Set<FakeImage> fakeImagesPart : images.values()) {
-            for (FakeImage fakeImage : fakeImagesPart) {
-                fakeImage.destroy();
-            }
+        for (FakeImage fakeImage : getAllImages()) {
+            fakeImage.destroy();
         }
 
         // Persist configuration
@@ -96,8 +286,9 @@ public class ImageRenderer implements Listener {
 
         // Clear dangling references
         images.clear();
+        index.clear();
+        tiledImages.clear();
         imagesCountByPlayer.clear();
-        playersLocation.clear();
     }
 
     /**
@@ -158,10 +349,7 @@ public class ImageRenderer implements Listener {
         if (!hasConfigChanged.get()) return;
 
         // Get all fake images
-        Set<FakeImage> fakeImages = new HashSet<>();
-        for (Set<FakeImage> fakeImagesPart : images.values()) {
-            fakeImages.addAll(fakeImagesPart);
-        }
+        Set<FakeImage> fakeImages = getAllImages();
 
         // Placed here so, if another change comes while saving, we don't lose those changes (will be saved later)
         hasConfigChanged.set(false);
@@ -203,14 +391,33 @@ public class ImageRenderer implements Listener {
      * @param isInit TRUE if called during renderer startup, FALSE otherwise
      */
     public void addImage(@NotNull FakeImage image, boolean isInit) {
-        WorldAreaId[] imageWorldAreaIds = image.getWorldAreaIds();
+        String worldName = image.getWorldName();
+        long[] imageWorldAreaIds = image.getWorldAreaIds();
 
-        // Add image to renderer
-        for (WorldAreaId worldAreaId : imageWorldAreaIds) {
-            images.computeIfAbsent(worldAreaId, __ -> {
-                LOGGER.fine("Created WorldArea#(" + worldAreaId + ")");
-                return ConcurrentHashMap.newKeySet();
-            }).add(image);
+        // Add image to renderer and find players nearby
+        // NOTE: Both happen while holding the players lock so movements processed concurrently spawn it only once
+        LongHashMap<Set<FakeImage>> worldAreas = images.computeIfAbsent(worldName, __ -> new LongHashMap<>());
+        Map<Player, PlayerUpdate> updates = new HashMap<>();
+        synchronized (playersLocation) {
+            synchronized (worldAreas) {
+                for (long worldAreaId : imageWorldAreaIds) {
+                    Set<FakeImage> worldAreaImages = worldAreas.get(worldAreaId);
+                    if (worldAreaImages == null) {
+                        worldAreaImages = ConcurrentHashMap.newKeySet();
+                        worldAreas.put(worldAreaId, worldAreaImages);
+                        LOGGER.fine("Created WorldArea#(" + WorldAreaId.toString(worldName, worldAreaId) + ")");
+                    }
+                    worldAreaImages.add(image);
+                }
+            }
+            for (Player player : getPlayersInViewDistance(image.getLocation().getWorld(), imageWorldAreaIds)) {
+                updates.computeIfAbsent(player, __ -> new PlayerUpdate()).imagesToSpawn.add(image);
+            }
+        }
+        applyUpdates(updates);
+        index.add(image);
+        if (image.isTiled()) {
+            tiledImages.add(image);
         }
 
         // Set configuration changed flag
@@ -221,11 +428,6 @@ public class ImageRenderer implements Listener {
         // Increment count of placed images by player
         UUID placedById = image.getPlacedBy().getUniqueId();
         imagesCountByPlayer.compute(placedById, (__, prev) -> (prev == null) ? 1 : prev+1);
-
-        // Spawn image in players nearby
-        for (Player player : getPlayersInViewDistance(imageWorldAreaIds)) {
-            image.spawn(player);
-        }
     }
 
     /**
@@ -243,21 +445,7 @@ public class ImageRenderer implements Listener {
      * @return          Fake image instance or NULL if not found
      */
     public @Nullable FakeImage getImage(@NotNull Location location, @NotNull BlockFace face) {
-        WorldAreaId worldAreaId = WorldAreaId.fromLocation(location);
-        Set<FakeImage> candidateImages = images.get(worldAreaId);
-        if (candidateImages == null) {
-            return null;
-        }
-
-        // Find first fake image containing the given location
-        for (FakeImage image : candidateImages) {
-            if (image.contains(location, face)) {
-                return image;
-            }
-        }
-
-        // No match found
-        return null;
+        return index.getImage(location, face);
     }
 
     /**
@@ -270,17 +458,7 @@ public class ImageRenderer implements Listener {
      * @return       Set of found images
      */
     public @NotNull Set<FakeImage> getImages(@NotNull World world, int minX, int maxX, int minZ, int maxZ) {
-        Set<FakeImage> response = new HashSet<>();
-        for (Map.Entry<WorldAreaId, Set<FakeImage>> entry : images.entrySet()) {
-            if (!entry.getKey().getWorld().getName().equals(world.getName())) continue;
-            for (FakeImage image : entry.getValue()) {
-                Location loc = image.getLocation();
-                if (loc.getBlockX() < minX || loc.getBlockX() > maxX) continue;
-                if (loc.getBlockZ() < minZ || loc.getBlockZ() > maxZ) continue;
-                response.add(image);
-            }
-        }
-        return response;
+        return index.getImages(world.getName(), minX, maxX, minZ, maxZ);
     }
 
     /**
@@ -288,20 +466,34 @@ public class ImageRenderer implements Listener {
      * @param image Fake image instance
      */
     public void removeImage(@NotNull FakeImage image) {
-        WorldAreaId[] imageWorldAreaIds = image.getWorldAreaIds();
-
-        // Destroy image from all players nearby
-        image.destroy();
+        String worldName = image.getWorldName();
 
         // Remove image from renderer
-        for (WorldAreaId worldAreaId : imageWorldAreaIds) {
-            Set<FakeImage> worldAreaImages = images.get(worldAreaId);
-            worldAreaImages.remove(image);
-            if (worldAreaImages.isEmpty()) {
-                LOGGER.fine("Destroyed WorldArea#(" + worldAreaId + ")");
-                images.remove(worldAreaId);
+        LongHashMap<Set<FakeImage>> worldAreas = images.get(worldName);
+        synchronized (playersLocation) {
+            for (PlayerArea area : playersLocation.values()) {
+                area.lingeringImages.remove(image);
+            }
+            if (worldAreas != null) {
+                synchronized (worldAreas) {
+                    for (long worldAreaId : image.getWorldAreaIds()) {
+                        Set<FakeImage> worldAreaImages = worldAreas.get(worldAreaId);
+                        if (worldAreaImages == null) continue;
+                        worldAreaImages.remove(image);
+                        if (worldAreaImages.isEmpty()) {
+                            LOGGER.fine("Destroyed WorldArea#(" + WorldAreaId.toString(worldName, worldAreaId) + ")");
+                            worldAreas.remove(worldAreaId);
+                        }
+                    }
+                }
             }
         }
+        index.remove(image);
+        tiledImages.remove(image);
+
+        // Destroy image from all players nearby
+        // NOTE: Done after releasing the players lock, destroyed images cannot get spawned again by concurrent moves
+        image.destroy();
 
         // Set configuration changed flag
         hasConfigChanged.set(true);
@@ -346,132 +538,694 @@ public class ImageRenderer implements Listener {
     }
 
     /**
-     * Get players in view distance of the provided world area IDs
-     * @param  ids World area IDs
-     * @return     Players inside those world areas
+     * Get all images
+     * @return Set of fake images
      */
-    private @NotNull Set<Player> getPlayersInViewDistance(@NotNull WorldAreaId[] ids) {
-        Set<WorldAreaId> neighborhood = new HashSet<>();
-        for (WorldAreaId worldAreaId : ids) {
-            Collections.addAll(neighborhood, worldAreaId.getNeighborhood());
+    private @NotNull Set<FakeImage> getAllImages() {
+        Set<FakeImage> response = new HashSet<>();
+        for (LongHashMap<Set<FakeImage>> worldAreas : images.values()) {
+            synchronized (worldAreas) {
+                for (Set<FakeImage> worldAreaImages : worldAreas.values()) {
+                    response.addAll(worldAreaImages);
+                }
+            }
         }
+        return response;
+    }
 
+    /**
+     * Get players in view distance of the provided world area IDs
+     * <p>
+     * As neighborhoods are symmetric, only the world areas around the provided ones (up to the maximum radius of the
+     * world) need to be visited. Then, players are filtered by their own radius.
+     * @param  world World instance
+     * @param  ids   World area IDs
+     * @return       Players inside those world areas
+     */
+    private @NotNull Set<Player> getPlayersInViewDistance(@NotNull World world, @NotNull long[] ids) {
         Set<Player> players = new HashSet<>();
-        for (Map.Entry<Player, WorldAreaId> entry : playersLocation.entrySet()) {
-            if (neighborhood.contains(entry.getValue())) {
-                players.add(entry.getKey());
+        LongHashMap<Set<Player>> worldPlayers = playersByArea.get(world.getName());
+        if (worldPlayers == null || worldPlayers.isEmpty()) {
+            return players;
+        }
+        int[] offsets = WorldAreaId.getNeighborhoodOffsets(WorldAreaId.getMaxRadius(world));
+        for (long worldAreaId : ids) {
+            int x = WorldAreaId.getX(worldAreaId);
+            int z = WorldAreaId.getZ(worldAreaId);
+            for (int i=0; i<offsets.length; i+=2) {
+                Set<Player> areaPlayers = worldPlayers.get(WorldAreaId.pack(x+offsets[i], z+offsets[i+1]));
+                if (areaPlayers == null) continue;
+                for (Player player : areaPlayers) {
+                    PlayerArea area = playersLocation.get(player);
+                    if (area != null && WorldAreaId.isInNeighborhood(area.worldAreaId, worldAreaId, area.radius)) {
+                        players.add(player);
+                    }
+                }
             }
         }
-
         return players;
     }
 
     /**
-     * Get images in view distance from world area ID
-     * @param  worldAreaId World area ID
-     * @return             Set of fake images
+     * Add player to reverse index of world areas
+     * @param player Player instance
+     * @param area   Player world area
      */
-    private @NotNull Set<FakeImage> getImagesInViewDistance(@NotNull WorldAreaId worldAreaId) {
+    private void indexPlayer(@NotNull Player player, @NotNull PlayerArea area) {
+        LongHashMap<Set<Player>> worldPlayers = playersByArea.computeIfAbsent(
+            area.worldName,
+            __ -> new LongHashMap<>()
+        );
+        Set<Player> areaPlayers = worldPlayers.get(area.worldAreaId);
+        if (areaPlayers == null) {
+            areaPlayers = new HashSet<>();
+            worldPlayers.put(area.worldAreaId, areaPlayers);
+        }
+        areaPlayers.add(player);
+    }
+
+    /**
+     * Remove player from reverse index of world areas
+     * @param player Player instance
+     * @param area   Player world area
+     */
+    private void unindexPlayer(@NotNull Player player, @NotNull PlayerArea area) {
+        LongHashMap<Set<Player>> worldPlayers = playersByArea.get(area.worldName);
+        if (worldPlayers == null) return;
+        Set<Player> areaPlayers = worldPlayers.get(area.worldAreaId);
+        if (areaPlayers == null) return;
+        areaPlayers.remove(player);
+        if (areaPlayers.isEmpty()) {
+            worldPlayers.remove(area.worldAreaId);
+            if (worldPlayers.isEmpty()) {
+                playersByArea.remove(area.worldName);
+            }
+        }
+    }
+
+    /**
+     * Get images in view distance from world area
+     * @param  area Player world area
+     * @return      Set of fake images
+     */
+    private @NotNull Set<FakeImage> getImagesInViewDistance(@NotNull PlayerArea area) {
+        return getImages(area.worldName, area.worldAreaId, WorldAreaId.getNeighborhoodOffsets(area.radius));
+    }
+
+    /**
+     * Get images in world areas
+     * @param  worldName World name
+     * @param  center    Center world area ID
+     * @param  offsets   Flattened <code>(dx, dz)</code> pairs of world areas relative to the center
+     * @return           Set of fake images
+     */
+    private @NotNull Set<FakeImage> getImages(@NotNull String worldName, long center, @NotNull int[] offsets) {
         Set<FakeImage> response = new HashSet<>();
-        for (WorldAreaId target : worldAreaId.getNeighborhood()) {
-            Set<FakeImage> targetImages = images.get(target);
-            if (targetImages != null) {
-                response.addAll(targetImages);
+        LongHashMap<Set<FakeImage>> worldAreas = images.get(worldName);
+        if (worldAreas == null) {
+            return response;
+        }
+        int x = WorldAreaId.getX(center);
+        int z = WorldAreaId.getZ(center);
+        synchronized (worldAreas) {
+            for (int i=0; i<offsets.length; i+=2) {
+                Set<FakeImage> targetImages = worldAreas.get(WorldAreaId.pack(x+offsets[i], z+offsets[i+1]));
+                if (targetImages != null) {
+                    response.addAll(targetImages);
+                }
             }
         }
         return response;
     }
 
+    /**
+     * Is image in view distance from world area
+     * @param  image  Fake image instance
+     * @param  center Center world area ID
+     * @param  radius Neighborhood radius in chunks
+     * @return        Whether any of the world areas of the image is in view distance
+     */
+    private static boolean isInViewDistance(@NotNull FakeImage image, long center, int radius) {
+        for (long worldAreaId : image.getWorldAreaIds()) {
+            if (WorldAreaId.isInNeighborhood(center, worldAreaId, radius)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Update visibility of animated images for all players
+     * <p>
+     * Must be called from the main thread as it accesses world blocks. To keep ticks short, at most
+     * {@link #MAX_VISIBILITY_CHECKS} are tested on every run, and the rest are left for the following runs.
+     * <p>
+     * Players are visited in turns, looking up the images of at most {@link #MAX_VISIBILITY_PLAYERS} per run, so
+     * the cost of finding images in view distance is spread across runs instead of paid for all players at once.
+     */
+    private void updateVisibility() {
+        if (pendingVisibilityPlayers.isEmpty() && pendingVisibilityChecks.isEmpty()) {
+            synchronized (playersLocation) {
+                pendingVisibilityPlayers.addAll(playersLocation.keySet());
+            }
+        }
+        int numOfChecks = 0;
+        int numOfPlayers = 0;
+        while (numOfChecks < MAX_VISIBILITY_CHECKS) {
+            Map.Entry<Player, FakeImage> check = pendingVisibilityChecks.poll();
+            if (check == null) {
+                if (numOfPlayers >= MAX_VISIBILITY_PLAYERS || pendingVisibilityPlayers.isEmpty()) {
+                    break;
+                }
+                enqueueVisibilityChecks(pendingVisibilityPlayers.poll());
+                numOfPlayers++;
+                continue;
+            }
+            if (check.getValue().updateVisibility(check.getKey())) {
+                numOfChecks++;
+            }
+        }
+    }
+
+    /**
+     * Enqueue visibility checks for the images in view distance of a player
+     * @param player Player instance
+     */
+    private void enqueueVisibilityChecks(@NotNull Player player) {
+        Set<FakeImage> playerImages;
+        synchronized (playersLocation) {
+            PlayerArea area = playersLocation.get(player);
+            if (area == null) {
+                // Player has left the server since the start of this turn
+                return;
+            }
+            playerImages = getImagesInViewDistance(area);
+        }
+        for (FakeImage image : playerImages) {
+            pendingVisibilityChecks.add(new AbstractMap.SimpleImmutableEntry<>(player, image));
+        }
+    }
+
+    /**
+     * Update spawned item frames of tiled images for all players
+     * <p>
+     * Runs asynchronously, as it only reads player location snapshots and schedules packets. Only visits tiled
+     * images, which know their own observers, so there is no need to look up the images around every player.
+     */
+    private void updateTiles() {
+        for (FakeImage image : tiledImages) {
+            image.updateTiles();
+        }
+    }
+
+    /**
+     * Update snapshots of player locations
+     * <p>
+     * Must be called from the main thread, as player locations are not safe to read from other threads.
+     */
+    private void updatePlayerLocations() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            playerLocations.put(player, player.getLocation());
+        }
+    }
+
+    /**
+     * Get player location
+     * <p>
+     * Safe to call from any thread. Returns the snapshot taken on the main thread during the last server tick, which
+     * must not be modified.
+     * @param  player Player instance
+     * @return        Player location
+     */
+    public @NotNull Location getPlayerLocation(@NotNull Player player) {
+        Location location = playerLocations.get(player);
+        if (location == null) {
+            // Player has not been seen by the main thread yet
+            return player.getLocation();
+        }
+        return location;
+    }
+
+    /**
+     * Are both locations in the same world area
+     * @param  a Location instance
+     * @param  b Location instance
+     * @return   Whether both locations belong to the same world area
+     */
+    private static boolean isSameWorldArea(@NotNull Location a, @NotNull Location b) {
+        return Objects.equals(a.getWorld(), b.getWorld()) && WorldAreaId.fromLocation(a) == WorldAreaId.fromLocation(b);
+    }
+
     /**
      * On player location change
-     * @param player   Player instance
-     * @param location New player location
+     * <p>
+     * Only posts the new world area of the player to its mailbox, the actual work is done by the movement executor.
+     * @param player     Player instance
+     * @param location   New player location
+     * @param isTeleport Whether player has jumped to the new location
      */
-    private void onPlayerLocationChange(@NotNull Player player, @NotNull Location location) {
+    private void onPlayerLocationChange(@NotNull Player player, @NotNull Location location, boolean isTeleport) {
         // Ignore NPC events from other plugins
         if (player.hasMetadata("NPC")) {
             LOGGER.fine("Ignored NPC event from Player#" + player.getName());
             return;
         }
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+        playerLocations.put(player, location.clone());
+        postMove(player, new PlayerMove(
+            world.getName(),
+            WorldAreaId.fromLocation(location),
+            WorldAreaId.getRadius(player, world),
+            isTeleport,
+            false
+        ));
+    }
 
+    /**
+     * Update neighborhood radius of all players
+     * <p>
+     * Players can change the render distance of their client at any time without moving to another world area, so
+     * it gets re-evaluated periodically. Must be called from the main thread as it accesses player locations.
+     */
+    private void updateRadiuses() {
+        Map<Player, Integer> radiuses = new HashMap<>();
+        synchronized (playersLocation) {
+            for (Map.Entry<Player, PlayerArea> entry : playersLocation.entrySet()) {
+                radiuses.put(entry.getKey(), entry.getValue().radius);
+            }
+        }
+        for (Map.Entry<Player, Integer> entry : radiuses.entrySet()) {
+            Player player = entry.getKey();
+            World world = player.getWorld();
+            if (WorldAreaId.getRadius(player, world) != entry.getValue()) {
+                onPlayerLocationChange(player, player.getLocation(), false);
+            }
+        }
+    }
+
+    /**
+     * Post player move to mailbox
+     * <p>
+     * If there is already a pending move for the player, it gets replaced by the new one so intermediate world areas
+     * are skipped.
+     * @param player Player instance
+     * @param move   Player move
+     */
+    private void postMove(@NotNull Player player, @NotNull PlayerMove move) {
+        AtomicBoolean isScheduled = new AtomicBoolean(true);
+        pendingMoves.compute(player, (__, prevMove) -> {
+            if (prevMove == null) {
+                isScheduled.set(false);
+                return move;
+            }
+            return (prevMove.isTeleport && !move.isTeleport) ?
+                new PlayerMove(move.worldName, move.worldAreaId, move.radius, true, move.isQuit) :
+                move;
+        });
+        if (isScheduled.get()) {
+            return;
+        }
+        try {
+            YamipaPlugin.getInstance().getMovementExecutor().execute(() -> processMove(player));
+        } catch (RejectedExecutionException __) {
+            processMove(player);
+        }
+    }
+
+    /**
+     * Process latest pending move of a player
+     * <p>
+     * Changes to spawn, destroy or prefetch images are computed while holding the lock of {@link #playersLocation},
+     * but applied after releasing it so other threads do not have to wait for them.
+     * @param player Player instance
+     */
+    private void processMove(@NotNull Player player) {
+        PlayerMove move = pendingMoves.remove(player);
+        if (move == null) {
+            return;
+        }
+        PlayerUpdate update = new PlayerUpdate();
+        synchronized (playersLocation) {
+            if (!isRunning) return;
+            if (move.isQuit) {
+                onPlayerQuit(player, update);
+            } else {
+                onPlayerAreaChange(player, move.worldName, move.worldAreaId, move.radius, move.isTeleport, update);
+            }
+        }
+        applyUpdate(player, update);
+    }
+
+    /**
+     * Apply changes to the images of several players
+     * <p>
+     * NOTE: Must be called without holding the lock of {@link #playersLocation}
+     * @param updates Changes to apply by player
+     */
+    private void applyUpdates(@NotNull Map<Player, PlayerUpdate> updates) {
+        for (Map.Entry<Player, PlayerUpdate> entry : updates.entrySet()) {
+            applyUpdate(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Apply changes to the images of a player
+     * <p>
+     * NOTE: Must be called without holding the lock of {@link #playersLocation}
+     * @param player Player instance
+     * @param update Changes to apply
+     */
+    private void applyUpdate(@NotNull Player player, @NotNull PlayerUpdate update) {
+        for (FakeImage image : update.imagesToSpawn) {
+            image.spawn(player);
+        }
+        for (FakeImage image : update.imagesToDestroy) {
+            image.destroy(player);
+        }
+        for (FakeImage image : update.imagesToForget) {
+            image.notifyPlayerQuit(player);
+        }
+        if (!update.imagesToPrefetch.isEmpty()) {
+            long deadline = System.currentTimeMillis() + prefetchTime;
+            long ttl = prefetchTime * 2;
+            for (Map.Entry<FakeImage, Double> entry : update.imagesToPrefetch.entrySet()) {
+                entry.getKey().prefetch(entry.getValue(), deadline, ttl);
+            }
+        }
+    }
+
+    /**
+     * On player move to a new world area
+     * <p>
+     * NOTE: Must be called while holding the lock of {@link #playersLocation}
+     * @param player      Player instance
+     * @param worldName   World name
+     * @param worldAreaId New world area ID
+     * @param radius      Neighborhood radius in chunks
+     * @param isTeleport  Whether player has jumped to the new location
+     * @param update      Changes to apply once the lock is released
+     */
+    private void onPlayerAreaChange(
+        @NotNull Player player,
+        @NotNull String worldName,
+        long worldAreaId,
+        int radius,
+        boolean isTeleport,
+        @NotNull PlayerUpdate update
+    ) {
         // Has player moved to another world area?
-        WorldAreaId worldAreaId = WorldAreaId.fromLocation(location);
-        WorldAreaId prevWorldAreaId = playersLocation.get(player);
-        if (worldAreaId.equals(prevWorldAreaId)) {
+        PlayerArea area = playersLocation.get(player);
+        boolean isSameArea = (area != null) && area.worldAreaId == worldAreaId && area.worldName.equals(worldName);
+        if (isSameArea && area.radius == radius) {
             return;
         }
-        playersLocation.put(player, worldAreaId);
-        LOGGER.fine("Player#" + player.getName() + " moved to WorldArea#(" + worldAreaId + ")");
+
+        // Update player world area
+        boolean isNew = (area == null);
+        if (isNew) {
+            area = new PlayerArea();
+            playersLocation.put(player, area);
+        } else {
+            unindexPlayer(player, area);
+        }
+        String prevWorldName = area.worldName;
+        long prevWorldAreaId = area.worldAreaId;
+        int prevRadius = area.radius;
+        area.worldName = worldName;
+        area.worldAreaId = worldAreaId;
+        area.radius = radius;
+        indexPlayer(player, area);
+        LOGGER.fine("Player#" + player.getName() + " moved to WorldArea#(" +
+            WorldAreaId.toString(worldName, worldAreaId) + ")");
+
+        // Track player velocity (unless only the radius has changed)
+        boolean isContinuous = !isNew && !isTeleport && worldName.equals(prevWorldName);
+        int dx = WorldAreaId.getX(worldAreaId) - WorldAreaId.getX(prevWorldAreaId);
+        int dz = WorldAreaId.getZ(worldAreaId) - WorldAreaId.getZ(prevWorldAreaId);
+        if (!isSameArea) {
+            updateVelocity(area, isContinuous ? dx : 0, isContinuous ? dz : 0, !isContinuous);
+        }
+
+        // Get edge offsets when moving to an adjacent world area
+        int[] enteredOffsets = null;
+        int[] exitedOffsets = null;
+        if (isContinuous && radius == prevRadius) {
+            enteredOffsets = WorldAreaId.getEnteredOffsets(radius, dx, dz);
+            exitedOffsets = WorldAreaId.getExitedOffsets(radius, dx, dz);
+        }
 
         // Get images that should be spawned/destroyed
-        Set<FakeImage> desiredState = getImagesInViewDistance(worldAreaId);
-        Set<FakeImage> currentState = (prevWorldAreaId == null) ? new HashSet<>() : getImagesInViewDistance(prevWorldAreaId);
-        Set<FakeImage> imagesToLoad = new HashSet<>(desiredState);
-        imagesToLoad.removeAll(currentState);
-        Set<FakeImage> imagesToUnload = new HashSet<>(currentState);
-        imagesToUnload.removeAll(desiredState);
-
-        // Spawn/destroy images
-        for (FakeImage image : imagesToUnload) {
-            image.destroy(player);
+        Set<FakeImage> imagesToLoad;
+        Set<FakeImage> imagesToUnload;
+        if (enteredOffsets != null && exitedOffsets != null) {
+            // Only examine world areas entering or leaving view distance
+            imagesToLoad = getImages(worldName, worldAreaId, enteredOffsets);
+            imagesToLoad.removeIf(image -> isInViewDistance(image, prevWorldAreaId, radius));
+            imagesToUnload = getImages(worldName, prevWorldAreaId, exitedOffsets);
+            imagesToUnload.removeIf(image -> isInViewDistance(image, worldAreaId, radius));
+        } else {
+            // Full diff of both neighborhoods
+            Set<FakeImage> currentState = isNew ?
+                new HashSet<>() :
+                getImages(prevWorldName, prevWorldAreaId, WorldAreaId.getNeighborhoodOffsets(prevRadius));
+            currentState.addAll(area.lingeringImages.keySet());
+            area.lingeringImages.clear();
+            Set<FakeImage> desiredState = getImagesInViewDistance(area);
+            imagesToLoad = new HashSet<>(desiredState);
+            imagesToLoad.removeAll(currentState);
+            imagesToUnload = new HashSet<>(currentState);
+            imagesToUnload.removeAll(desiredState);
         }
+
+        // Spawn images (unless they are still lingering)
         for (FakeImage image : imagesToLoad) {
-            image.spawn(player);
+            if (area.lingeringImages.remove(image) == null) {
+                update.imagesToSpawn.add(image);
+            }
+        }
+
+        // Destroy images (or let them linger if the player stays in the same world)
+        boolean isSameWorld = worldName.equals(prevWorldName);
+        long despawnAt = System.currentTimeMillis() + despawnDelay;
+        for (FakeImage image : imagesToUnload) {
+            if (isSameWorld && hasDespawnHysteresis()) {
+                area.lingeringImages.putIfAbsent(image, despawnAt);
+            } else {
+                update.imagesToDestroy.add(image);
+            }
         }
+
+        // Prefetch images ahead of player
+        prefetchImages(area, update);
+    }
+
+    /**
+     * Update player velocity
+     * @param area  Player world area
+     * @param dx    Movement in X axis in world areas
+     * @param dz    Movement in Z axis in world areas
+     * @param reset Whether to discard previous velocity (e.g. after a teleport)
+     */
+    private static void updateVelocity(@NotNull PlayerArea area, int dx, int dz, boolean reset) {
+        long now = System.currentTimeMillis();
+        double elapsedSeconds = Math.max(now - area.lastChangeAt, 1) / 1000.0;
+        area.lastChangeAt = now;
+        if (reset) {
+            area.velocityX = 0;
+            area.velocityZ = 0;
+            return;
+        }
+        area.velocityX = area.velocityX*(1-VELOCITY_WEIGHT) + (dx/elapsedSeconds)*VELOCITY_WEIGHT;
+        area.velocityZ = area.velocityZ*(1-VELOCITY_WEIGHT) + (dz/elapsedSeconds)*VELOCITY_WEIGHT;
+    }
+
+    /**
+     * Prefetch images in the world areas a player is predicted to enter
+     * <p>
+     * NOTE: Must be called while holding the lock of {@link #playersLocation}
+     * @param area   Player world area
+     * @param update Changes to apply once the lock is released
+     */
+    private void prefetchImages(@NotNull PlayerArea area, @NotNull PlayerUpdate update) {
+        if (prefetchTime == 0) {
+            return;
+        }
+
+        // Predict world area of player
+        double seconds = prefetchTime / 1000.0;
+        int dx = (int) Math.round(area.velocityX * seconds);
+        int dz = (int) Math.round(area.velocityZ * seconds);
+        dx = Math.max(Math.min(dx, MAX_PREFETCH_AREAS), -MAX_PREFETCH_AREAS);
+        dz = Math.max(Math.min(dz, MAX_PREFETCH_AREAS), -MAX_PREFETCH_AREAS);
+        if (dx == 0 && dz == 0) {
+            return;
+        }
+        long predictedWorldAreaId = WorldAreaId.pack(
+            WorldAreaId.getX(area.worldAreaId) + dx,
+            WorldAreaId.getZ(area.worldAreaId) + dz
+        );
+
+        // Warm up images not in view distance yet
+        double centerX = (WorldAreaId.getX(predictedWorldAreaId) + 0.5) * 64;
+        double centerZ = (WorldAreaId.getZ(predictedWorldAreaId) + 0.5) * 64;
+        int[] offsets = WorldAreaId.getNeighborhoodOffsets(area.radius);
+        for (FakeImage image : getImages(area.worldName, predictedWorldAreaId, offsets)) {
+            if (isInViewDistance(image, area.worldAreaId, area.radius)) continue;
+            update.imagesToPrefetch.put(image, image.getDistanceSquared(centerX, centerZ));
+        }
+    }
+
+    /**
+     * Has despawn hysteresis
+     * @return Whether images out of view distance are not destroyed right away
+     */
+    private boolean hasDespawnHysteresis() {
+        return (despawnMargin > 0 || despawnDelay > 0);
+    }
+
+    /**
+     * Destroy lingering images
+     * <p>
+     * Images out of view distance are destroyed once their despawn delay has elapsed and the player is further than
+     * the despawn margin. Must be called from the main thread as it accesses player locations.
+     */
+    private void despawnLingeringImages() {
+        long now = System.currentTimeMillis();
+        Map<Player, PlayerUpdate> updates = new HashMap<>();
+        synchronized (playersLocation) {
+            for (Map.Entry<Player, PlayerArea> entry : playersLocation.entrySet()) {
+                PlayerArea area = entry.getValue();
+                if (area.lingeringImages.isEmpty()) continue;
+                Player player = entry.getKey();
+                Location location = player.getLocation();
+                double despawnDistance = (area.radius + despawnMargin) * 16;
+                double despawnDistanceSquared = despawnDistance * despawnDistance;
+                Iterator<Map.Entry<FakeImage, Long>> iterator = area.lingeringImages.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<FakeImage, Long> lingeringEntry = iterator.next();
+                    if (lingeringEntry.getValue() > now) continue;
+                    FakeImage image = lingeringEntry.getKey();
+                    if (image.getDistanceSquared(location.getX(), location.getZ()) <= despawnDistanceSquared) continue;
+                    updates.computeIfAbsent(player, __ -> new PlayerUpdate()).imagesToDestroy.add(image);
+                    iterator.remove();
+                }
+            }
+        }
+        applyUpdates(updates);
+    }
+
+    /**
+     * On player quit
+     * <p>
+     * NOTE: Must be called while holding the lock of {@link #playersLocation}
+     * @param player Player instance
+     * @param update Changes to apply once the lock is released
+     */
+    private void onPlayerQuit(@NotNull Player player, @NotNull PlayerUpdate update) {
+        // Get player's current world area
+        PlayerArea area = playersLocation.remove(player);
+        if (area == null) return;
+        unindexPlayer(player, area);
+
+        // Notify world areas that player quit
+        update.imagesToForget.addAll(getImagesInViewDistance(area));
+        update.imagesToForget.addAll(area.lingeringImages.keySet());
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerJoin(@NotNull PlayerJoinEvent event) {
-        onPlayerLocationChange(event.getPlayer(), event.getPlayer().getLocation());
+        onPlayerLocationChange(event.getPlayer(), event.getPlayer().getLocation(), true);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
-        Player player = event.getPlayer();
-
-        // Get player's current world area ID
-        WorldAreaId worldAreaId = playersLocation.get(player);
-        if (worldAreaId == null) return;
-        playersLocation.remove(player);
-
-        // Notify world areas that player quit
-        for (FakeImage image : getImagesInViewDistance(worldAreaId)) {
-            image.notifyPlayerQuit(player);
-        }
+        playerLocations.remove(event.getPlayer());
+        postMove(event.getPlayer(), new PlayerMove("", 0, 0, true, true));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerRespawn(@NotNull PlayerRespawnEvent event) {
-        onPlayerLocationChange(event.getPlayer(), event.getPlayer().getLocation());
+        onPlayerLocationChange(event.getPlayer(), event.getPlayer().getLocation(), true);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerTeleport(@NotNull PlayerTeleportEvent event) {
         if (event.getTo() == null) return;
-        if (event.getFrom().getChunk().equals(event.getTo().getChunk())) return;
+        if (isSameWorldArea(event.getFrom(), event.getTo())) return;
 
         // Wait until next server tick before handling location change
         // This is necessary as teleport events get fired *before* teleporting the player
         YamipaPlugin plugin = YamipaPlugin.getInstance();
-        Bukkit.getScheduler().runTask(plugin, () -> onPlayerLocationChange(event.getPlayer(), event.getTo()));
+        Bukkit.getScheduler().runTask(plugin, () -> onPlayerLocationChange(event.getPlayer(), event.getTo(), true));
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onPlayerMove(@NotNull PlayerMoveEvent event) {
         if (event.getTo() == null) return;
-        if (event.getFrom().getChunk().equals(event.getTo().getChunk())) return;
-        onPlayerLocationChange(event.getPlayer(), event.getTo());
+        if (isSameWorldArea(event.getFrom(), event.getTo())) return;
+        onPlayerLocationChange(event.getPlayer(), event.getTo(), false);
     }
 
     @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
     public void onVehicleMove(@NotNull VehicleMoveEvent event) {
         List<Entity> passengers = event.getVehicle().getPassengers();
         if (passengers.isEmpty()) return;
-        if (event.getFrom().getChunk().equals(event.getTo().getChunk())) return;
+        if (isSameWorldArea(event.getFrom(), event.getTo())) return;
         for (Entity passenger : passengers) {
             if (passenger instanceof Player) {
-                onPlayerLocationChange((Player) passenger, event.getTo());
+                onPlayerLocationChange((Player) passenger, event.getTo(), false);
             }
         }
     }
+
+    /**
+     * World area where a player is located
+     */
+    private static class PlayerArea {
+        private String worldName;
+        private long worldAreaId;
+        private int radius; // Neighborhood radius in chunks
+        private long lastChangeAt; // Time of last world area change in milliseconds
+        private double velocityX; // In world areas per second
+        private double velocityZ; // In world areas per second
+        private final Map<FakeImage, Long> lingeringImages = new HashMap<>(); // Out of view distance, with despawn time
+    }
+
+    /**
+     * Changes to the images of a player
+     */
+    private static class PlayerUpdate {
+        private final Set<FakeImage> imagesToSpawn = new HashSet<>();
+        private final Set<FakeImage> imagesToDestroy = new HashSet<>();
+        private final Set<FakeImage> imagesToForget = new HashSet<>(); // Player quit from server
+        private final Map<FakeImage, Double> imagesToPrefetch = new HashMap<>(); // With squared distance
+    }
+
+    /**
+     * Pending player move
+     */
+    private static class PlayerMove {
+        private final String worldName;
+        private final long worldAreaId;
+        private final int radius;
+        private final boolean isTeleport;
+        private final boolean isQuit;
+
+        private PlayerMove(
+            @NotNull String worldName,
+            long worldAreaId,
+            int radius,
+            boolean isTeleport,
+            boolean isQuit
+        ) {
+            this.worldName = worldName;
+            this.worldAreaId = worldAreaId;
+            this.radius = radius;
+            this.isTeleport = isTeleport;
+            this.isQuit = isQuit;
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Rectangular area of pixels inside a {@link FakeMap}.
+ */
+public class MapArea {
+    private final int x;
+    private final int z;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Class constructor
+     * @param x       Initial X pixel coordinate
+     * @param z       Initial Z pixel coordinate
+     * @param columns Width in pixels
+     * @param rows    Height in pixels
+     */
+    public MapArea(int x, int z, int columns, int rows) {
+        this.x = x;
+        this.z = z;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Get initial X pixel coordinate
+     * @return X coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get initial Z pixel coordinate
+     * @return Z coordinate
+     */
+    public int getZ() {
+        return z;
+    }
+
+    /**
+     * Get width in pixels
+     * @return Number of columns
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get height in pixels
+     * @return Number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get size in pixels
+     * @return Number of pixels
+     */
+    public int size() {
+        return columns * rows;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return x + "," + z + "," + columns + "x" + rows;
+    }
+}
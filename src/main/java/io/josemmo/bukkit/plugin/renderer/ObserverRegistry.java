@@ -0,0 +1,219 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe registry of players observing a fake image.
+ * <p>
+ * Observers are kept in a copy-on-write array, so iterating them is wait-free and always works on a consistent
+ * snapshot, while additions and removals are applied atomically using compare-and-swap.
+ * <p>
+ * Partial observers only receive the item frames of the image that are close enough to them.
+ */
+public class ObserverRegistry {
+    private static final Observer[] EMPTY = new Observer[0];
+    private final AtomicReference<Observer[]> observers = new AtomicReference<>(EMPTY);
+
+    /**
+     * Get all observers
+     * <p>
+     * NOTE: The returned array must not be modified
+     * @return Snapshot of current observers
+     */
+    public @NotNull Observer[] getAll() {
+        return observers.get();
+    }
+
+    /**
+     * Get observer
+     * @param  player Player instance
+     * @return        Observer instance or NULL if not found
+     */
+    public @Nullable Observer get(@NotNull Player player) {
+        for (Observer observer : observers.get()) {
+            if (observer.player.equals(player)) {
+                return observer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Is empty
+     * @return Whether there are no observers
+     */
+    public boolean isEmpty() {
+        return (observers.get().length == 0);
+    }
+
+    /**
+     * Add observer
+     * <p>
+     * Replaces any existing observer for the same player.
+     * @param  player  Player instance
+     * @param  step    Animation step the player will receive first
+     * @param  partial Whether the player only receives some of the item frames of the image
+     * @return         Observer instance
+     */
+    public @NotNull Observer add(@NotNull Player player, int step, boolean partial) {
+        Observer observer = new Observer(player, step, partial);
+        Observer[] current;
+        Observer[] updated;
+        do {
+            current = observers.get();
+            int index = indexOf(current, player);
+            if (index < 0) {
+                updated = Arrays.copyOf(current, current.length+1);
+                updated[current.length] = observer;
+            } else {
+                updated = current.clone();
+                updated[index] = observer;
+            }
+        } while (!observers.compareAndSet(current, updated));
+        return observer;
+    }
+
+    /**
+     * Remove observer
+     * @param  player Player instance
+     * @return        Whether player was an observer
+     */
+    public boolean remove(@NotNull Player player) {
+        Observer[] current;
+        Observer[] updated;
+        do {
+            current = observers.get();
+            int index = indexOf(current, player);
+            if (index < 0) {
+                return false;
+            }
+            updated = new Observer[current.length-1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index+1, updated, index, current.length-index-1);
+        } while (!observers.compareAndSet(current, updated));
+        return true;
+    }
+
+    /**
+     * Remove all observers
+     * @return Snapshot of removed observers
+     */
+    public @NotNull Observer[] clear() {
+        return observers.getAndSet(EMPTY);
+    }
+
+    /**
+     * Get index of player
+     * @param  array  Observers array
+     * @param  player Player instance
+     * @return        Index or <code>-1</code> if not found
+     */
+    private static int indexOf(@NotNull Observer[] array, @NotNull Player player) {
+        for (int i=0; i<array.length; i++) {
+            if (array[i].player.equals(player)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Player observing a fake image
+     */
+    public static class Observer {
+        private final Player player;
+        private volatile int step;
+        private volatile boolean hidden = false;
+        private final @Nullable Set<FakeItemFrame> spawnedFrames;
+
+        /**
+         * Class constructor
+         * @param player  Player instance
+         * @param step    Animation step the player will receive first
+         * @param partial Whether the player only receives some of the item frames of the image
+         */
+        private Observer(@NotNull Player player, int step, boolean partial) {
+            this.player = player;
+            this.step = step;
+            this.spawnedFrames = partial ? ConcurrentHashMap.newKeySet() : null;
+        }
+
+        /**
+         * Get player
+         * @return Player instance
+         */
+        public @NotNull Player getPlayer() {
+            return player;
+        }
+
+        /**
+         * Get last animation step sent to player
+         * @return Animation step
+         */
+        public int getStep() {
+            return step;
+        }
+
+        /**
+         * Set last animation step sent to player
+         * @param step Animation step
+         */
+        public void setStep(int step) {
+            this.step = step;
+        }
+
+        /**
+         * Is hidden
+         * @return Whether player cannot see the image
+         */
+        public boolean isHidden() {
+            return hidden;
+        }
+
+        /**
+         * Set hidden
+         * @param hidden Whether player cannot see the image
+         */
+        public void setHidden(boolean hidden) {
+            this.hidden = hidden;
+        }
+
+        /**
+         * Is partial
+         * @return Whether the player only receives some of the item frames of the image
+         */
+        public boolean isPartial() {
+            return (spawnedFrames != null);
+        }
+
+        /**
+         * Is item frame spawned
+         * @param  frame Item frame instance
+         * @return       Whether item frame has been spawned for the player
+         */
+        public boolean isSpawned(@NotNull FakeItemFrame frame) {
+            return (spawnedFrames == null) || spawnedFrames.contains(frame);
+        }
+
+        /**
+         * Set item frame spawned
+         * <p>
+         * Has no effect if the observer is not partial.
+         * @param  frame   Item frame instance
+         * @param  spawned Whether item frame has been spawned for the player
+         * @return         Whether the state of the item frame has changed
+         */
+        public boolean setSpawned(@NotNull FakeItemFrame frame, boolean spawned) {
+            if (spawnedFrames == null) {
+                return false;
+            }
+            return spawned ? spawnedFrames.add(frame) : spawnedFrames.remove(frame);
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import com.comphenix.protocol.events.PacketContainer;
+import io.josemmo.bukkit.plugin.YamipaPlugin;
+import io.josemmo.bukkit.plugin.packets.MapDataPacket;
+import io.josemmo.bukkit.plugin.utils.Logger;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Service for pacing the packets sent to players.
+ * <p>
+ * Packets are grouped into jobs, each one belonging to a fake entity.
+ * Jobs are queued per player and sent on every server tick in order of priority (<i>i.e.,</i> closest entities
+ * first) without exceeding a maximum number of bytes per player, and only while the player connection is writable.
+ * <p>
+ * Job packets are built right before sending them, so they always represent the latest state of their entity and
+ * cancelled jobs never mark map pixels as sent.
+ * <p>
+ * Packets that must not be delayed (<i>e.g.,</i> animation steps or destroy packets) are instead appended to the
+ * player outbox. All packets produced for a player during a tick are flushed together, so that a player receives a
+ * single bundle per tick (or as few as allowed by the bundle size limits).
+ * <p>
+ * Ticks never overlap: if the previous one is still running (<i>e.g.,</i> because of a slow send), the tick is skipped.
+ */
+public class PacketScheduler implements Listener {
+    private static final Logger LOGGER = Logger.getLogger("PacketScheduler");
+    private static final int PACKET_OVERHEAD = 16; // Approximate size in bytes of a packet without pixels
+    private static final int MIN_STALE_JOBS = 64; // Minimum number of replaced or cancelled jobs before compacting
+    public static final int MAX_BUNDLE_PACKETS = 4096; // Maximum number of packets per bundle accepted by clients
+    private final int maxBytesPerTick;
+    private final int maxBundlePackets;
+    private final int maxBundleBytes;
+    private final int spawnRowsPerTick;
+    private final ConcurrentMap<Player, PlayerQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong lastSequence = new AtomicLong(0);
+    private @Nullable BukkitTask task;
+    private final AtomicBoolean isTicking = new AtomicBoolean(false);
+    private final AtomicLong currentTick = new AtomicLong(0);
+
+    /**
+     * Get approximate packet size
+     * @param  packet Packet instance
+     * @return        Size in bytes
+     */
+    static int getSize(@NotNull PacketContainer packet) {
+        if (packet instanceof MapDataPacket) {
+            return ((MapDataPacket) packet).getNumOfPixels() + PACKET_OVERHEAD;
+        }
+        return PACKET_OVERHEAD;
+    }
+
+    /**
+     * Class constructor
+     * @param maxBytesPerTick  Maximum number of bytes to send per player and tick (<code>0</code> for unlimited)
+     * @param maxBundlePackets Maximum number of packets per bundle (capped at {@link #MAX_BUNDLE_PACKETS})
+     * @param maxBundleBytes   Maximum number of bytes per bundle (<code>0</code> for unlimited)
+     * @param spawnRowsPerTick Number of image rows to spawn per tick (<code>0</code> for all at once)
+     */
+    public PacketScheduler(int maxBytesPerTick, int maxBundlePackets, int maxBundleBytes, int spawnRowsPerTick) {
+        this.maxBytesPerTick = maxBytesPerTick;
+        this.maxBundlePackets = (maxBundlePackets > 0) ?
+            Math.min(maxBundlePackets, MAX_BUNDLE_PACKETS) :
+            MAX_BUNDLE_PACKETS;
+        this.maxBundleBytes = maxBundleBytes;
+        this.spawnRowsPerTick = spawnRowsPerTick;
+    }
+
+    /**
+     * Get maximum number of packets per bundle
+     * @return Maximum number of packets
+     */
+    public int getMaxBundlePackets() {
+        return maxBundlePackets;
+    }
+
+    /**
+     * Get maximum number of bytes per bundle
+     * @return Maximum number of bytes, <code>0</code> for unlimited
+     */
+    public int getMaxBundleBytes() {
+        return maxBundleBytes;
+    }
+
+    /**
+     * Get number of image rows to spawn per tick
+     * @return Number of rows, <code>0</code> for all at once
+     */
+    public int getSpawnRowsPerTick() {
+        return spawnRowsPerTick;
+    }
+
+    /**
+     * Start service
+     */
+    public void start() {
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        task = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Stop service
+     */
+    public void stop() {
+        HandlerList.unregisterAll(this);
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+
+        // Flush outboxes (e.g., destroy packets)
+        for (Map.Entry<Player, PlayerQueue> entry : queues.entrySet()) {
+            PlayerQueue queue = entry.getValue();
+            synchronized (queue) {
+                if (!queue.outbox.isEmpty()) {
+                    sendPackets(entry.getKey(), queue.outbox);
+                }
+            }
+        }
+        queues.clear();
+    }
+
+    /**
+     * Get number of pending jobs
+     * @return Number of jobs waiting to be sent for all players
+     */
+    public int getNumOfPendingJobs() {
+        int numOfJobs = 0;
+        for (PlayerQueue queue : queues.values()) {
+            synchronized (queue) {
+                numOfJobs += queue.pending.size();
+            }
+        }
+        return numOfJobs;
+    }
+
+    /**
+     * Schedule packets
+     * <p>
+     * Replaces any pending job for the same player and owner.
+     * @param player   Player who will receive the packets
+     * @param owner    Fake entity the packets belong to
+     * @param priority Job priority (lower values get sent first)
+     * @param supplier Function that builds the packets right before sending them
+     */
+    public void schedule(
+        @NotNull Player player,
+        @NotNull FakeEntity owner,
+        double priority,
+        @NotNull Supplier<List<PacketContainer>> supplier
+    ) {
+        schedule(player, owner, priority, 0, supplier);
+    }
+
+    /**
+     * Schedule packets
+     * <p>
+     * Replaces any pending job for the same player and owner.
+     * @param player     Player who will receive the packets
+     * @param owner      Fake entity the packets belong to
+     * @param priority   Job priority (lower values get sent first)
+     * @param delayTicks Minimum number of ticks to wait before sending the packets
+     * @param supplier   Function that builds the packets right before sending them
+     */
+    public void schedule(
+        @NotNull Player player,
+        @NotNull FakeEntity owner,
+        double priority,
+        int delayTicks,
+        @NotNull Supplier<List<PacketContainer>> supplier
+    ) {
+        PlayerQueue queue = queues.computeIfAbsent(player, __ -> new PlayerQueue());
+        Job job = new Job(owner, priority, currentTick.get()+delayTicks, lastSequence.incrementAndGet(), supplier);
+        synchronized (queue) {
+            Job prevJob = queue.pending.put(owner, job);
+            if (delayTicks > 0) {
+                queue.delayed.add(job);
+            } else {
+                queue.jobs.add(job);
+            }
+            if (prevJob != null) {
+                queue.compact();
+            }
+        }
+    }
+
+    /**
+     * Schedule packets unless there's a pending job
+     * <p>
+     * Unlike {@link #schedule(Player, FakeEntity, double, Supplier)}, pending jobs for the same player and owner
+     * (<i>e.g.,</i> spawn packets) are never replaced.
+     * @param  player   Player who will receive the packets
+     * @param  owner    Fake entity the packets belong to
+     * @param  priority Job priority (lower values get sent first)
+     * @param  supplier Function that builds the packets right before sending them
+     * @return          Whether packets were scheduled
+     */
+    public boolean scheduleIfAbsent(
+        @NotNull Player player,
+        @NotNull FakeEntity owner,
+        double priority,
+        @NotNull Supplier<List<PacketContainer>> supplier
+    ) {
+        PlayerQueue queue = queues.computeIfAbsent(player, __ -> new PlayerQueue());
+        synchronized (queue) {
+            if (queue.pending.containsKey(owner)) {
+                return false;
+            }
+            Job job = new Job(owner, priority, currentTick.get(), lastSequence.incrementAndGet(), supplier);
+            queue.pending.put(owner, job);
+            queue.jobs.add(job);
+            return true;
+        }
+    }
+
+    /**
+     * Has pending packets
+     * @param  player Player instance
+     * @param  owner  Fake entity
+     * @return        Whether there's a job waiting to be sent for the given player and entity
+     */
+    public boolean isPending(@NotNull Player player, @NotNull FakeEntity owner) {
+        PlayerQueue queue = queues.get(player);
+        if (queue == null) {
+            return false;
+        }
+        synchronized (queue) {
+            return queue.pending.containsKey(owner);
+        }
+    }
+
+    /**
+     * Send packets on next tick
+     * <p>
+     * Unlike scheduled jobs, these packets are neither prioritized nor limited by the maximum bytes per tick.
+     * @param player  Player who will receive the packets
+     * @param packets Packets to send
+     */
+    public void send(@NotNull Player player, @NotNull List<PacketContainer> packets) {
+        PlayerQueue queue = queues.computeIfAbsent(player, __ -> new PlayerQueue());
+        synchronized (queue) {
+            queue.outbox.addAll(packets);
+        }
+    }
+
+    /**
+     * Cancel pending jobs and send packets on next tick
+     * <p>
+     * Guarantees that no cancelled job can be sent after the given packets.
+     * @param player  Player who will receive the packets
+     * @param owners  Fake entities whose pending jobs will be cancelled
+     * @param packets Packets to send
+     */
+    public void cancelAndSend(
+        @NotNull Player player,
+        @NotNull FakeEntity[] owners,
+        @NotNull List<PacketContainer> packets
+    ) {
+        PlayerQueue queue = queues.computeIfAbsent(player, __ -> new PlayerQueue());
+        synchronized (queue) {
+            boolean hasCancelled = false;
+            for (FakeEntity owner : owners) {
+                hasCancelled |= (queue.pending.remove(owner) != null);
+            }
+            if (hasCancelled) {
+                queue.compact();
+            }
+            queue.outbox.addAll(packets);
+        }
+    }
+
+    /**
+     * Run scheduler tick
+     */
+    void tick() {
+        if (!isTicking.compareAndSet(false, true)) {
+            LOGGER.fine("Skipped packet scheduler tick as the previous one is still running");
+            return;
+        }
+        try {
+            flush(currentTick.incrementAndGet());
+        } finally {
+            isTicking.set(false);
+        }
+    }
+
+    /**
+     * Send outboxes and pending jobs to players
+     * @param tick Current tick number
+     */
+    private void flush(long tick) {
+        for (Map.Entry<Player, PlayerQueue> entry : queues.entrySet()) {
+            Player player = entry.getKey();
+            PlayerQueue queue = entry.getValue();
+
+            // Forget about players who have left
+            if (!player.isOnline()) {
+                queues.remove(player);
+                continue;
+            }
+
+            synchronized (queue) {
+                // Take packets from outbox
+                List<PacketContainer> packets = new ArrayList<>(queue.outbox);
+                queue.outbox.clear();
+                int numOfBytes = 0;
+                for (PacketContainer packet : packets) {
+                    numOfBytes += getSize(packet);
+                }
+
+                // Wait for client to catch up before sending jobs
+                if (!isWritable(player)) {
+                    if (!packets.isEmpty()) {
+                        sendPackets(player, packets);
+                    }
+                    continue;
+                }
+
+                // Release delayed jobs
+                Iterator<Job> delayedIterator = queue.delayed.iterator();
+                while (delayedIterator.hasNext()) {
+                    Job delayedJob = delayedIterator.next();
+                    if (delayedJob.notBefore <= tick) {
+                        delayedIterator.remove();
+                        queue.jobs.add(delayedJob);
+                    }
+                }
+
+                // Build packets from jobs with the highest priority
+                int jobBytes = 0;
+                Job job;
+                while ((maxBytesPerTick == 0 || jobBytes < maxBytesPerTick) && (job = queue.jobs.poll()) != null) {
+                    if (queue.pending.get(job.owner) != job) {
+                        // Job was replaced or cancelled
+                        continue;
+                    }
+                    queue.pending.remove(job.owner);
+                    try {
+                        for (PacketContainer packet : job.supplier.get()) {
+                            packets.add(packet);
+                            jobBytes += getSize(packet);
+                        }
+                    } catch (Exception e) {
+                        LOGGER.severe("Failed to build scheduled packets for Player#" + player.getName(), e);
+                    }
+                }
+
+                // Send packets
+                if (!packets.isEmpty()) {
+                    numOfBytes += jobBytes;
+                    sendPackets(player, packets);
+                    LOGGER.fine("Sent " + packets.size() + " packet(s) (" + numOfBytes + " bytes) to Player#" +
+                        player.getName() + ", " + queue.pending.size() + " job(s) remaining");
+                }
+            }
+        }
+    }
+
+    /**
+     * Is player connection writable
+     * @param  player Player instance
+     * @return        FALSE if channel is known to be saturated, TRUE otherwise
+     */
+    boolean isWritable(@NotNull Player player) {
+        return FakeEntity.isWritable(player);
+    }
+
+    /**
+     * Send packets to player
+     * @param player  Player instance
+     * @param packets Packets to send
+     */
+    void sendPackets(@NotNull Player player, @NotNull List<PacketContainer> packets) {
+        FakeEntity.tryToSendPackets(player, packets);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
+        queues.remove(event.getPlayer());
+    }
+
+    /**
+     * Queue of jobs and outbox for a single player
+     */
+    private static class PlayerQueue {
+        private final PriorityQueue<Job> jobs = new PriorityQueue<>();
+        private final List<Job> delayed = new ArrayList<>();
+        private final Map<FakeEntity, Job> pending = new HashMap<>();
+        private final List<PacketContainer> outbox = new ArrayList<>();
+
+        /**
+         * Remove replaced or cancelled jobs
+         * <p>
+         * Stale jobs are skipped when polled, so they are only removed once they outnumber the pending ones.
+         * <p>
+         * NOTE: Must be called while holding the lock of this instance
+         */
+        private void compact() {
+            int numOfStaleJobs = jobs.size() + delayed.size() - pending.size();
+            if (numOfStaleJobs < MIN_STALE_JOBS || numOfStaleJobs < pending.size()) {
+                return;
+            }
+            jobs.removeIf(job -> pending.get(job.owner) != job);
+            delayed.removeIf(job -> pending.get(job.owner) != job);
+        }
+    }
+
+    /**
+     * Packets waiting to be sent
+     */
+    private static class Job implements Comparable<Job> {
+        private final FakeEntity owner;
+        private final double priority;
+        private final long notBefore;
+        private final long sequence;
+        private final Supplier<List<PacketContainer>> supplier;
+
+        private Job(
+            @NotNull FakeEntity owner,
+            double priority,
+            long notBefore,
+            long sequence,
+            @NotNull Supplier<List<PacketContainer>> supplier
+        ) {
+            this.owner = owner;
+            this.priority = priority;
+            this.notBefore = notBefore;
+            this.sequence = sequence;
+            this.supplier = supplier;
+        }
+
+        @Override
+        public int compareTo(@NotNull Job other) {
+            int result = Double.compare(priority, other.priority);
+            return (result == 0) ? Long.compare(sequence, other.sequence) : result;
+        }
+    }
+}
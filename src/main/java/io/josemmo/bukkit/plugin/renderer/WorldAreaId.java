@@ -1,25 +1,46 @@
 package io.josemmo.bukkit.plugin.renderer;
 
+import io.josemmo.bukkit.plugin.utils.Logger;
 import org.bukkit.Bukkit;
-import org.bukkit.Chunk;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import java.util.HashMap;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * World Area IDs represent groups of 16 chunks arranged in a 4x4 square.
+ * <p>
+ * IDs are packed into primitive <code>long</code> values (X coordinate in the upper half, Z coordinate in the lower
+ * half) and are unique per world. They are computed from block coordinates, so chunks never get loaded.
+ * <p>
+ * Neighborhoods contain all world areas with at least one chunk inside a circle of a given radius in chunks around any
+ * chunk of the center world area.
  */
-public class WorldAreaId {
+public final class WorldAreaId {
+    private static final Logger LOGGER = Logger.getLogger("WorldAreaId");
+    private static final int AREA_BITS = 6; // 64x64 blocks (4x4 chunks)
+    private static final int CHUNKS_PER_AREA = 4;
+    public static final int MAX_RADIUS = 32; // In chunks
     private static boolean USE_WORLD_VIEW_DISTANCE = true;
-    private static final Map<String, Integer> SIZES_PER_WORLD = new HashMap<>();
-    private final World world;
-    private final int x;
-    private final int z;
-    private WorldAreaId[] neighborhood = null;
+    private static final @Nullable Method GET_CLIENT_VIEW_DISTANCE_METHOD;
+    private static final Map<String, Integer> RADIUS_PER_WORLD = new ConcurrentHashMap<>();
+
+    /** Half widths of neighborhoods by radius and absolute Z offset from the center world area */
+    private static final int[][] HALF_WIDTHS = new int[MAX_RADIUS+1][];
+
+    /** Neighborhood offsets by radius, as flattened <code>(dx, dz)</code> pairs */
+    private static final int[][] OFFSETS = new int[MAX_RADIUS+1][];
+
+    /** Offsets relative to the new center of world areas entering view distance, by radius and direction of travel */
+    private static final int[][][] ENTERED_OFFSETS = new int[MAX_RADIUS+1][9][];
+
+    /** Offsets relative to the old center of world areas leaving view distance, by radius and direction of travel */
+    private static final int[][][] EXITED_OFFSETS = new int[MAX_RADIUS+1][9][];
 
     static {
         try {
@@ -27,390 +48,246 @@ public class WorldAreaId {
         } catch (Exception e) {
             USE_WORLD_VIEW_DISTANCE = false;
         }
+
+        Method method = null;
+        try {
+            method = Player.class.getMethod("getClientViewDistance");
+        } catch (Exception __) {
+            LOGGER.fine("Server does not expose client view distances, will use server view distance instead");
+        }
+        GET_CLIENT_VIEW_DISTANCE_METHOD = method;
+
+        // Precompute neighborhood shapes and offsets
+        for (int radius=0; radius<=MAX_RADIUS; radius++) {
+            int radiusSquared = radius * radius;
+            int maxDelta = 0;
+            while (getGap(maxDelta+1)*getGap(maxDelta+1) <= radiusSquared) {
+                maxDelta++;
+            }
+            int[] halfWidths = new int[maxDelta+1];
+            int numOfAreas = 0;
+            for (int dz=0; dz<=maxDelta; dz++) {
+                int halfWidth = 0;
+                while (getGap(halfWidth+1)*getGap(halfWidth+1) + getGap(dz)*getGap(dz) <= radiusSquared) {
+                    halfWidth++;
+                }
+                halfWidths[dz] = halfWidth;
+                numOfAreas += (halfWidth*2 + 1) * ((dz == 0) ? 1 : 2);
+            }
+            HALF_WIDTHS[radius] = halfWidths;
+
+            int[] offsets = new int[numOfAreas*2];
+            int i = 0;
+            for (int dz=-maxDelta; dz<=maxDelta; dz++) {
+                int halfWidth = halfWidths[Math.abs(dz)];
+                for (int dx=-halfWidth; dx<=halfWidth; dx++) {
+                    offsets[i++] = dx;
+                    offsets[i++] = dz;
+                }
+            }
+            OFFSETS[radius] = offsets;
+        }
+
+        // Precompute edge offsets for every direction of travel
+        for (int radius=0; radius<=MAX_RADIUS; radius++) {
+            for (int dx=-1; dx<=1; dx++) {
+                for (int dz=-1; dz<=1; dz++) {
+                    ENTERED_OFFSETS[radius][getDirection(dx, dz)] = getEdgeOffsets(radius, dx, dz);
+                    EXITED_OFFSETS[radius][getDirection(dx, dz)] = getEdgeOffsets(radius, -dx, -dz);
+                }
+            }
+        }
     }
 
-    /**
-     * Get ID from location
-     * @param  location Location instance
-     * @return          World area ID
-     */
-    public static @NotNull WorldAreaId fromLocation(@NotNull Location location) {
-        Chunk chunk = location.getChunk();
-        return new WorldAreaId(chunk.getWorld(), chunk.getX() >> 2, chunk.getZ() >> 2);
+    private WorldAreaId() {
+        // Static class
     }
 
     /**
-     * Class constructor
-     * @param world World instance
-     * @param x     World area X coordinate
-     * @param z     World area Z coordinate
+     * Get gap in chunks between two world areas
+     * @param  delta Absolute difference of world area coordinates in one axis
+     * @return       Minimum distance in chunks between any of their chunks in that axis
      */
-    public WorldAreaId(@NotNull World world, int x, int z) {
-        this.world = world;
-        this.x = x;
-        this.z = z;
+    private static int getGap(int delta) {
+        return Math.max(delta*CHUNKS_PER_AREA - (CHUNKS_PER_AREA-1), 0);
     }
 
     /**
-     * Get world instance
-     * @return World instance
+     * Get direction index
+     * @param  dx Movement in X axis (from <code>-1</code> to <code>1</code>)
+     * @param  dz Movement in Z axis (from <code>-1</code> to <code>1</code>)
+     * @return    Direction index
      */
-    public @NotNull World getWorld() {
-        return world;
+    private static int getDirection(int dx, int dz) {
+        return (dx+1)*3 + (dz+1);
     }
 
     /**
-     * Get nearby world area IDs in view distance (plus this one)
-     * @return Array of neighbors
+     * Compute edge offsets
+     * @param  radius Neighborhood radius in chunks
+     * @param  dx     Movement in X axis
+     * @param  dz     Movement in Z axis
+     * @return        Flattened offsets relative to the new center that were not in view distance from the old center
      */
-    public @NotNull WorldAreaId[] getNeighborhood() {
-        // Get value from cache (if available)
-        if (neighborhood != null) {
-            return neighborhood;
+    private static @NotNull int[] getEdgeOffsets(int radius, int dx, int dz) {
+        int[] offsets = OFFSETS[radius];
+        long oldCenter = pack(-dx, -dz);
+        int[] edge = new int[offsets.length];
+        int i = 0;
+        for (int j=0; j<offsets.length; j+=2) {
+            if (!isInNeighborhood(oldCenter, pack(offsets[j], offsets[j+1]), radius)) {
+                edge[i++] = offsets[j];
+                edge[i++] = offsets[j+1];
+            }
         }
+        return Arrays.copyOf(edge, i);
+    }
 
-        // Calculate neighborhood size from world's view distance
-        // NOTE: World size is cached to prevent issues with plugins that modify it at runtime
-        int size = SIZES_PER_WORLD.computeIfAbsent(world.getName(), (__) -> {
-            int distance = USE_WORLD_VIEW_DISTANCE ? world.getViewDistance() : Bukkit.getServer().getViewDistance();
-            return distance / 4;
-        });
-
-        // Size 0 (1+1+1=3)
-        // ·|·
-        // XOX
-        // ·|·
-        if (size == 0) {
-            neighborhood = new WorldAreaId[]{
-                new WorldAreaId(world, x, z-1),
-
-                new WorldAreaId(world, x-1, z),
-                this,
-                new WorldAreaId(world, x+1, z),
+    /**
+     * Pack world area coordinates
+     * @param  x World area X coordinate
+     * @param  z World area Z coordinate
+     * @return   World area ID
+     */
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xffffffffL);
+    }
 
-                new WorldAreaId(world, x, z+1),
-            };
-            return neighborhood;
-        }
+    /**
+     * Get X coordinate
+     * @param  id World area ID
+     * @return    World area X coordinate
+     */
+    public static int getX(long id) {
+        return (int) (id >> 32);
+    }
 
-        // Size 1 (2+1+2=5)
-        // ·X|X·
-        // XX|XX
-        // XXOXX
-        // XX|XX
-        // ·X|X·
-        if (size == 1) {
-            neighborhood = new WorldAreaId[]{
-                new WorldAreaId(world, x-1, z-2),
-                new WorldAreaId(world, x, z-2),
-                new WorldAreaId(world, x+1, z-2),
+    /**
+     * Get Z coordinate
+     * @param  id World area ID
+     * @return    World area Z coordinate
+     */
+    public static int getZ(long id) {
+        return (int) id;
+    }
 
-                new WorldAreaId(world, x-2, z-1),
-                new WorldAreaId(world, x-1, z-1),
-                new WorldAreaId(world, x, z-1),
-                new WorldAreaId(world, x+1, z-1),
-                new WorldAreaId(world, x+2, z-1),
+    /**
+     * Get ID from block coordinates
+     * @param  blockX Block X coordinate
+     * @param  blockZ Block Z coordinate
+     * @return        World area ID
+     */
+    public static long fromBlock(int blockX, int blockZ) {
+        return pack(blockX >> AREA_BITS, blockZ >> AREA_BITS);
+    }
 
-                new WorldAreaId(world, x-2, z),
-                new WorldAreaId(world, x-1, z),
-                this,
-                new WorldAreaId(world, x+1, z),
-                new WorldAreaId(world, x+2, z),
+    /**
+     * Get ID from location
+     * @param  location Location instance
+     * @return          World area ID
+     */
+    public static long fromLocation(@NotNull Location location) {
+        return fromBlock(location.getBlockX(), location.getBlockZ());
+    }
 
-                new WorldAreaId(world, x-2, z+1),
-                new WorldAreaId(world, x-1, z+1),
-                new WorldAreaId(world, x, z+1),
-                new WorldAreaId(world, x+1, z+1),
-                new WorldAreaId(world, x+2, z+1),
+    /**
+     * Get maximum neighborhood radius of world
+     * <p>
+     * NOTE: World view distance is cached to prevent issues with plugins that modify it at runtime
+     * @param  world World instance
+     * @return       Neighborhood radius in chunks
+     */
+    public static int getMaxRadius(@NotNull World world) {
+        return RADIUS_PER_WORLD.computeIfAbsent(world.getName(), (__) -> {
+            int distance = USE_WORLD_VIEW_DISTANCE ? world.getViewDistance() : Bukkit.getServer().getViewDistance();
+            return Math.max(Math.min(distance, MAX_RADIUS), 0);
+        });
+    }
 
-                new WorldAreaId(world, x-1, z+2),
-                new WorldAreaId(world, x, z+2),
-                new WorldAreaId(world, x+1, z+2),
-            };
-            return neighborhood;
+    /**
+     * Get neighborhood radius of player
+     * <p>
+     * Uses the render distance of the player client (if known), capped by the view distance of the world.
+     * @param  player Player instance
+     * @param  world  World where the player is located
+     * @return        Neighborhood radius in chunks
+     */
+    public static int getRadius(@NotNull Player player, @NotNull World world) {
+        int maxRadius = getMaxRadius(world);
+        if (GET_CLIENT_VIEW_DISTANCE_METHOD == null) {
+            return maxRadius;
         }
-
-        // Size 2 (3+1+3=7)
-        // ··X|X··
-        // ·XX|XX·
-        // XXX|XXX
-        // XXXOXXX
-        // XXX|XXX
-        // ·XX|XX·
-        // ··X|X··
-        if (size == 2) {
-            neighborhood = new WorldAreaId[]{
-                new WorldAreaId(world, x-1, z-3),
-                new WorldAreaId(world, x, z-3),
-                new WorldAreaId(world, x+1, z-3),
-
-                new WorldAreaId(world, x-2, z-2),
-                new WorldAreaId(world, x-1, z-2),
-                new WorldAreaId(world, x, z-2),
-                new WorldAreaId(world, x+1, z-2),
-                new WorldAreaId(world, x+2, z-2),
-
-                new WorldAreaId(world, x-3, z-1),
-                new WorldAreaId(world, x-2, z-1),
-                new WorldAreaId(world, x-1, z-1),
-                new WorldAreaId(world, x, z-1),
-                new WorldAreaId(world, x+1, z-1),
-                new WorldAreaId(world, x+2, z-1),
-                new WorldAreaId(world, x+3, z-1),
-
-                new WorldAreaId(world, x-3, z),
-                new WorldAreaId(world, x-2, z),
-                new WorldAreaId(world, x-1, z),
-                this,
-                new WorldAreaId(world, x+1, z),
-                new WorldAreaId(world, x+2, z),
-                new WorldAreaId(world, x+3, z),
-
-                new WorldAreaId(world, x-3, z+1),
-                new WorldAreaId(world, x-2, z+1),
-                new WorldAreaId(world, x-1, z+1),
-                new WorldAreaId(world, x, z+1),
-                new WorldAreaId(world, x+1, z+1),
-                new WorldAreaId(world, x+2, z+1),
-                new WorldAreaId(world, x+3, z+1),
-
-                new WorldAreaId(world, x-2, z+2),
-                new WorldAreaId(world, x-1, z+2),
-                new WorldAreaId(world, x, z+2),
-                new WorldAreaId(world, x+1, z+2),
-                new WorldAreaId(world, x+2, z+2),
-
-                new WorldAreaId(world, x-1, z+3),
-                new WorldAreaId(world, x, z+3),
-                new WorldAreaId(world, x+1, z+3),
-            };
-            return neighborhood;
+        try {
+            int clientViewDistance = (int) GET_CLIENT_VIEW_DISTANCE_METHOD.invoke(player);
+            return (clientViewDistance > 0) ? Math.min(clientViewDistance, maxRadius) : maxRadius;
+        } catch (Exception __) {
+            return maxRadius;
         }
+    }
 
-        // Size 3 (4+1+4=9)
-        // ···X|X···
-        // ·XXX|XXX·
-        // ·XXX|XXX·
-        // XXXX|XXXX
-        // XXXXOXXXX
-        // XXXX|XXXX
-        // ·XXX|XXX·
-        // ·XXX|XXX·
-        // ···X|X···
-        if (size == 3) {
-            neighborhood = new WorldAreaId[]{
-                new WorldAreaId(world, x-1, z-4),
-                new WorldAreaId(world, x, z-4),
-                new WorldAreaId(world, x+1, z-4),
-
-                new WorldAreaId(world, x-3, z-3),
-                new WorldAreaId(world, x-2, z-3),
-                new WorldAreaId(world, x-1, z-3),
-                new WorldAreaId(world, x, z-3),
-                new WorldAreaId(world, x+1, z-3),
-                new WorldAreaId(world, x+2, z-3),
-                new WorldAreaId(world, x+3, z-3),
-
-                new WorldAreaId(world, x-3, z-2),
-                new WorldAreaId(world, x-2, z-2),
-                new WorldAreaId(world, x-1, z-2),
-                new WorldAreaId(world, x, z-2),
-                new WorldAreaId(world, x+1, z-2),
-                new WorldAreaId(world, x+2, z-2),
-                new WorldAreaId(world, x+3, z-2),
-
-                new WorldAreaId(world, x-4, z-1),
-                new WorldAreaId(world, x-3, z-1),
-                new WorldAreaId(world, x-2, z-1),
-                new WorldAreaId(world, x-1, z-1),
-                new WorldAreaId(world, x, z-1),
-                new WorldAreaId(world, x+1, z-1),
-                new WorldAreaId(world, x+2, z-1),
-                new WorldAreaId(world, x+3, z-1),
-                new WorldAreaId(world, x+4, z-1),
-
-                new WorldAreaId(world, x-4, z),
-                new WorldAreaId(world, x-3, z),
-                new WorldAreaId(world, x-2, z),
-                new WorldAreaId(world, x-1, z),
-                this,
-                new WorldAreaId(world, x+1, z),
-                new WorldAreaId(world, x+2, z),
-                new WorldAreaId(world, x+3, z),
-                new WorldAreaId(world, x+4, z),
-
-                new WorldAreaId(world, x-4, z+1),
-                new WorldAreaId(world, x-3, z+1),
-                new WorldAreaId(world, x-2, z+1),
-                new WorldAreaId(world, x-1, z+1),
-                new WorldAreaId(world, x, z+1),
-                new WorldAreaId(world, x+1, z+1),
-                new WorldAreaId(world, x+2, z+1),
-                new WorldAreaId(world, x+3, z+1),
-                new WorldAreaId(world, x+4, z+1),
-
-                new WorldAreaId(world, x-3, z+2),
-                new WorldAreaId(world, x-2, z+2),
-                new WorldAreaId(world, x-1, z+2),
-                new WorldAreaId(world, x, z+2),
-                new WorldAreaId(world, x+1, z+2),
-                new WorldAreaId(world, x+2, z+2),
-                new WorldAreaId(world, x+3, z+2),
-
-                new WorldAreaId(world, x-3, z+3),
-                new WorldAreaId(world, x-2, z+3),
-                new WorldAreaId(world, x-1, z+3),
-                new WorldAreaId(world, x, z+3),
-                new WorldAreaId(world, x+1, z+3),
-                new WorldAreaId(world, x+2, z+3),
-                new WorldAreaId(world, x+3, z+3),
+    /**
+     * Get neighborhood offsets
+     * <p>
+     * NOTE: The returned array must not be modified
+     * @param  radius Neighborhood radius in chunks
+     * @return        Flattened <code>(dx, dz)</code> pairs of nearby world areas in view distance (plus the center one)
+     */
+    public static @NotNull int[] getNeighborhoodOffsets(int radius) {
+        return OFFSETS[radius];
+    }
 
-                new WorldAreaId(world, x-1, z+4),
-                new WorldAreaId(world, x, z+4),
-                new WorldAreaId(world, x+1, z+4),
-            };
-            return neighborhood;
+    /**
+     * Get offsets of world areas entering view distance
+     * <p>
+     * NOTE: The returned array must not be modified
+     * @param  radius Neighborhood radius in chunks
+     * @param  dx     Movement in X axis
+     * @param  dz     Movement in Z axis
+     * @return        Flattened <code>(dx, dz)</code> pairs relative to the new center or NULL if not adjacent
+     */
+    public static @Nullable int[] getEnteredOffsets(int radius, int dx, int dz) {
+        if (Math.abs(dx) > 1 || Math.abs(dz) > 1) {
+            return null;
         }
-
-        // Size ≥4 (5+1+5=11)
-        // ···XX|XX···
-        // ··XXX|XXX··
-        // ·XXXX|XXXX·
-        // XXXXX|XXXXX
-        // XXXXX|XXXXX
-        // XXXXXOXXXXX
-        // XXXXX|XXXXX
-        // XXXXX|XXXXX
-        // ·XXXX|XXXX·
-        // ··XXX|XXX··
-        // ···XX|XX···
-        neighborhood = new WorldAreaId[]{
-            new WorldAreaId(world, x-2, z-5),
-            new WorldAreaId(world, x-1, z-5),
-            new WorldAreaId(world, x, z-5),
-            new WorldAreaId(world, x+1, z-5),
-            new WorldAreaId(world, x+2, z-5),
-
-            new WorldAreaId(world, x-3, z-4),
-            new WorldAreaId(world, x-2, z-4),
-            new WorldAreaId(world, x-1, z-4),
-            new WorldAreaId(world, x, z-4),
-            new WorldAreaId(world, x+1, z-4),
-            new WorldAreaId(world, x+2, z-4),
-            new WorldAreaId(world, x+3, z-4),
-
-            new WorldAreaId(world, x-4, z-3),
-            new WorldAreaId(world, x-3, z-3),
-            new WorldAreaId(world, x-2, z-3),
-            new WorldAreaId(world, x-1, z-3),
-            new WorldAreaId(world, x, z-3),
-            new WorldAreaId(world, x+1, z-3),
-            new WorldAreaId(world, x+2, z-3),
-            new WorldAreaId(world, x+3, z-3),
-            new WorldAreaId(world, x+4, z-3),
-
-            new WorldAreaId(world, x-5, z-2),
-            new WorldAreaId(world, x-4, z-2),
-            new WorldAreaId(world, x-3, z-2),
-            new WorldAreaId(world, x-2, z-2),
-            new WorldAreaId(world, x-1, z-2),
-            new WorldAreaId(world, x, z-2),
-            new WorldAreaId(world, x+1, z-2),
-            new WorldAreaId(world, x+2, z-2),
-            new WorldAreaId(world, x+3, z-2),
-            new WorldAreaId(world, x+4, z-2),
-            new WorldAreaId(world, x+5, z-2),
-
-            new WorldAreaId(world, x-5, z-1),
-            new WorldAreaId(world, x-4, z-1),
-            new WorldAreaId(world, x-3, z-1),
-            new WorldAreaId(world, x-2, z-1),
-            new WorldAreaId(world, x-1, z-1),
-            new WorldAreaId(world, x, z-1),
-            new WorldAreaId(world, x+1, z-1),
-            new WorldAreaId(world, x+2, z-1),
-            new WorldAreaId(world, x+3, z-1),
-            new WorldAreaId(world, x+4, z-1),
-            new WorldAreaId(world, x+5, z-1),
-
-            new WorldAreaId(world, x-5, z),
-            new WorldAreaId(world, x-4, z),
-            new WorldAreaId(world, x-3, z),
-            new WorldAreaId(world, x-2, z),
-            new WorldAreaId(world, x-1, z),
-            this,
-            new WorldAreaId(world, x+1, z),
-            new WorldAreaId(world, x+2, z),
-            new WorldAreaId(world, x+3, z),
-            new WorldAreaId(world, x+4, z),
-            new WorldAreaId(world, x+5, z),
-
-            new WorldAreaId(world, x-5, z+1),
-            new WorldAreaId(world, x-4, z+1),
-            new WorldAreaId(world, x-3, z+1),
-            new WorldAreaId(world, x-2, z+1),
-            new WorldAreaId(world, x-1, z+1),
-            new WorldAreaId(world, x, z+1),
-            new WorldAreaId(world, x+1, z+1),
-            new WorldAreaId(world, x+2, z+1),
-            new WorldAreaId(world, x+3, z+1),
-            new WorldAreaId(world, x+4, z+1),
-            new WorldAreaId(world, x+5, z+1),
-
-            new WorldAreaId(world, x-5, z+2),
-            new WorldAreaId(world, x-4, z+2),
-            new WorldAreaId(world, x-3, z+2),
-            new WorldAreaId(world, x-2, z+2),
-            new WorldAreaId(world, x-1, z+2),
-            new WorldAreaId(world, x, z+2),
-            new WorldAreaId(world, x+1, z+2),
-            new WorldAreaId(world, x+2, z+2),
-            new WorldAreaId(world, x+3, z+2),
-            new WorldAreaId(world, x+4, z+2),
-            new WorldAreaId(world, x+5, z+2),
-
-            new WorldAreaId(world, x-4, z+3),
-            new WorldAreaId(world, x-3, z+3),
-            new WorldAreaId(world, x-2, z+3),
-            new WorldAreaId(world, x-1, z+3),
-            new WorldAreaId(world, x, z+3),
-            new WorldAreaId(world, x+1, z+3),
-            new WorldAreaId(world, x+2, z+3),
-            new WorldAreaId(world, x+3, z+3),
-            new WorldAreaId(world, x+4, z+3),
-
-            new WorldAreaId(world, x-3, z+4),
-            new WorldAreaId(world, x-2, z+4),
-            new WorldAreaId(world, x-1, z+4),
-            new WorldAreaId(world, x, z+4),
-            new WorldAreaId(world, x+1, z+4),
-            new WorldAreaId(world, x+2, z+4),
-            new WorldAreaId(world, x+3, z+4),
-
-            new WorldAreaId(world, x-2, z+5),
-            new WorldAreaId(world, x-1, z+5),
-            new WorldAreaId(world, x, z+5),
-            new WorldAreaId(world, x+1, z+5),
-            new WorldAreaId(world, x+2, z+5),
-        };
-        return neighborhood;
+        return ENTERED_OFFSETS[radius][getDirection(dx, dz)];
     }
 
-    @Override
-    public boolean equals(@Nullable Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        WorldAreaId that = (WorldAreaId) o;
-        return x == that.x && z == that.z && world.getName().equals(that.world.getName());
+    /**
+     * Get offsets of world areas leaving view distance
+     * <p>
+     * NOTE: The returned array must not be modified
+     * @param  radius Neighborhood radius in chunks
+     * @param  dx     Movement in X axis
+     * @param  dz     Movement in Z axis
+     * @return        Flattened <code>(dx, dz)</code> pairs relative to the old center or NULL if not adjacent
+     */
+    public static @Nullable int[] getExitedOffsets(int radius, int dx, int dz) {
+        if (Math.abs(dx) > 1 || Math.abs(dz) > 1) {
+            return null;
+        }
+        return EXITED_OFFSETS[radius][getDirection(dx, dz)];
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(world, x, z);
+    /**
+     * Is in neighborhood
+     * @param  center World area ID at the center of the neighborhood
+     * @param  target World area ID to check
+     * @param  radius Neighborhood radius in chunks
+     * @return        Whether target world area is in view distance from center world area
+     */
+    public static boolean isInNeighborhood(long center, long target, int radius) {
+        int[] halfWidths = HALF_WIDTHS[radius];
+        int dz = Math.abs(getZ(target) - getZ(center));
+        return (dz < halfWidths.length) && (Math.abs(getX(target) - getX(center)) <= halfWidths[dz]);
     }
 
-    @Override
-    public @NotNull String toString() {
-        return world.getName() + "," + x + "," + z;
+    /**
+     * Get human-readable representation
+     * @param  worldName World name
+     * @param  id        World area ID
+     * @return           String representation
+     */
+    public static @NotNull String toString(@NotNull String worldName, long id) {
+        return worldName + "," + getX(id) + "," + getZ(id);
     }
 }
@@ -5,6 +5,7 @@ import io.josemmo.bukkit.plugin.renderer.FakeImage;
 import io.josemmo.bukkit.plugin.renderer.FakeMap;
 import io.josemmo.bukkit.plugin.utils.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.metadata.IIOMetadata;
@@ -20,6 +21,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
 
@@ -31,6 +34,7 @@ public class CachedMapsFile extends SynchronizedFile {
     private final ImageFile imageFile;
     private final int width;
     private final int height;
+    private @Nullable Consumer<FakeMap[][][]> onPreview;
     private FakeMap[][][] maps;
     private int delay;
 
@@ -39,12 +43,40 @@ public class CachedMapsFile extends SynchronizedFile {
      * @param  imageFile Image file instance
      * @param  width     Width in blocks
      * @param  height    Height in blocks
+     * @param  onPreview Callback for receiving a preview of the first step if maps need to be rendered
      * @return           Cached maps instance
      */
-    public static @NotNull CachedMapsFile from(@NotNull ImageFile imageFile, int width, int height) {
+    public static @NotNull CachedMapsFile from(
+        @NotNull ImageFile imageFile,
+        int width,
+        int height,
+        @Nullable Consumer<FakeMap[][][]> onPreview
+    ) {
+        return new CachedMapsFile(getPath(imageFile, width, height), imageFile, width, height, onPreview);
+    }
+
+    /**
+     * Has warm cache file in disk
+     * @param  imageFile Image file instance
+     * @param  width     Width in blocks
+     * @param  height    Height in blocks
+     * @return           Whether maps can be loaded from disk instead of rendered
+     */
+    public static boolean isWarm(@NotNull ImageFile imageFile, int width, int height) {
+        File file = getPath(imageFile, width, height).toFile();
+        return file.exists() && file.lastModified() > imageFile.getLastModified();
+    }
+
+    /**
+     * Get path to cache file
+     * @param  imageFile Image file instance
+     * @param  width     Width in blocks
+     * @param  height    Height in blocks
+     * @return           Path to cache file
+     */
+    private static @NotNull Path getPath(@NotNull ImageFile imageFile, int width, int height) {
         Path cachePath = YamipaPlugin.getInstance().getStorage().getCachePath();
-        Path path = cachePath.resolve(imageFile.getFilename() + "." + width + "-" + height + "." + CACHE_EXT);
-        return new CachedMapsFile(path, imageFile, width, height);
+        return cachePath.resolve(imageFile.getFilename() + "." + width + "-" + height + "." + CACHE_EXT);
     }
 
     /**
@@ -83,13 +115,22 @@ public class CachedMapsFile extends SynchronizedFile {
      * @param imageFile Image file associated to these maps
      * @param width     Width in blocks
      * @param height    Height blocks
+     * @param onPreview Callback for receiving a preview of the first step if maps need to be rendered
      */
-    private CachedMapsFile(@NotNull Path path, @NotNull ImageFile imageFile, int width, int height) {
+    private CachedMapsFile(
+        @NotNull Path path,
+        @NotNull ImageFile imageFile,
+        int width,
+        int height,
+        @Nullable Consumer<FakeMap[][][]> onPreview
+    ) {
         super(path);
         this.imageFile = imageFile;
         this.width = width;
         this.height = height;
+        this.onPreview = onPreview;
         load();
+        this.onPreview = null;
     }
 
     /**
@@ -100,6 +141,17 @@ public class CachedMapsFile extends SynchronizedFile {
         return maps;
     }
 
+    /**
+     * Is tile animated
+     * @param  col Tile column
+     * @param  row Tile row
+     * @return     Whether tile changes between animation steps or not
+     */
+    public boolean isAnimated(int col, int row) {
+        FakeMap[] steps = maps[col][row];
+        return (steps[0] != steps[steps.length-1]);
+    }
+
     /**
      * Get delay between steps
      * @return Delay in 50ms intervals or <code>0</code> if not applicable
@@ -112,6 +164,17 @@ public class CachedMapsFile extends SynchronizedFile {
      * Load maps
      */
     private void load() {
+        loadMaps();
+        deduplicateSteps();
+        if (YamipaPlugin.getInstance().getRenderer().isDeltaAnimationEnabled()) {
+            convertToDeltaMaps();
+        }
+    }
+
+    /**
+     * Load maps from disk or image file
+     */
+    private void loadMaps() {
         // Try to load maps from disk
         if (exists() && getLastModified() > imageFile.getLastModified()) {
             LOGGER.fine("Found warm cache file \"" + path + "\"");
@@ -129,7 +192,22 @@ public class CachedMapsFile extends SynchronizedFile {
         LOGGER.fine("Missed cache file \"" + path + "\"");
         try {
             generateFromImage();
-            tryToWriteToDisk();
+
+            // Write to disk in the background
+            // NOTE: Maps get deduplicated and converted to delta maps in the meantime, so a snapshot is written
+            FakeMap[][][] snapshot = new FakeMap[maps.length][][];
+            for (int col=0; col<maps.length; ++col) {
+                snapshot[col] = new FakeMap[maps[col].length][];
+                for (int row=0; row<maps[col].length; ++row) {
+                    snapshot[col][row] = maps[col][row].clone();
+                }
+            }
+            int snapshotDelay = delay;
+            try {
+                YamipaPlugin.getInstance().getIoExecutor().execute(() -> tryToWriteToDisk(snapshot, snapshotDelay));
+            } catch (RejectedExecutionException __) {
+                tryToWriteToDisk(snapshot, snapshotDelay);
+            }
             return;
         } catch (Exception e) {
             LOGGER.severe("Failed to render image step(s) from file \"" + path + "\"", e);
@@ -140,6 +218,62 @@ public class CachedMapsFile extends SynchronizedFile {
         delay = 0;
     }
 
+    /**
+     * Deduplicate animation steps
+     * @see #deduplicateSteps(FakeMap[][][])
+     */
+    private void deduplicateSteps() {
+        int numOfStaticTiles = deduplicateSteps(maps);
+        if (maps[0][0].length > 1) {
+            LOGGER.fine("Found " + numOfStaticTiles + "/" + (width*height) + " static tile(s) in \"" + path + "\"");
+        }
+    }
+
+    /**
+     * Deduplicate animation steps
+     * <p>
+     * Consecutive steps with identical pixels in the same tile are replaced by a single map instance.
+     * As a result, static tiles (those that never change during the animation) end up using the same map for all steps
+     * and can be told apart from animated tiles by {@link #isAnimated(int, int)}.
+     * @param  maps Maps to deduplicate in place
+     * @return      Number of static tiles
+     */
+    static int deduplicateSteps(@NotNull FakeMap[][][] maps) {
+        int numOfStaticTiles = 0;
+        for (FakeMap[][] column : maps) {
+            for (FakeMap[] steps : column) {
+                for (int step=1; step<steps.length; ++step) {
+                    FakeMap prevMap = steps[step-1];
+                    if (steps[step] != prevMap && Arrays.equals(steps[step].getPixels(), prevMap.getPixels())) {
+                        steps[step] = prevMap;
+                    }
+                }
+                if (steps[0] == steps[steps.length-1]) {
+                    ++numOfStaticTiles;
+                }
+            }
+        }
+        return numOfStaticTiles;
+    }
+
+    /**
+     * Convert animated maps to delta maps
+     * <p>
+     * Computes the dirty areas between consecutive animation steps so that every tile only needs a single map ID.
+     */
+    private void convertToDeltaMaps() {
+        if (maps[0][0].length < 2) {
+            // Not an animated image
+            return;
+        }
+        for (FakeMap[][] column : maps) {
+            for (int row=0; row<column.length; ++row) {
+                column[row] = FakeMap.toDeltaSteps(column[row]);
+            }
+        }
+        LOGGER.fine("Computed dirty areas for cached maps \"" + path + "\"");
+    }
+
     /**
      * Load data from disk
      * @throws IllegalArgumentException if cache file is outdated
@@ -255,6 +389,12 @@ public class CachedMapsFile extends SynchronizedFile {
 
                     // Paint step image over temporary canvas
                     BufferedImage image = reader.read(step);
+
+                    // Publish first step as preview (now that we know there are more steps to render)
+                    if (step == 1) {
+                        publishPreview(renderedImages.get(0));
+                    }
+
                     tmpGraphics.drawImage(image, imageLeft, imageTop, null);
                     image.flush();
 
@@ -310,10 +450,39 @@ public class CachedMapsFile extends SynchronizedFile {
         this.delay = delay;
     }
 
+    /**
+     * Publish preview
+     * @param renderedImage First step pixels in Minecraft color palette
+     */
+    private void publishPreview(byte[] renderedImage) {
+        if (onPreview == null) {
+            return;
+        }
+        FakeMap[][][] previewMaps = new FakeMap[width][height][1];
+        for (int col=0; col<width; col++) {
+            for (int row=0; row<height; row++) {
+                previewMaps[col][row][0] = new FakeMap(
+                    renderedImage,
+                    width*FakeMap.DIMENSION,
+                    col*FakeMap.DIMENSION,
+                    row*FakeMap.DIMENSION
+                );
+            }
+        }
+        try {
+            onPreview.accept(previewMaps);
+            LOGGER.fine("Published preview of \"" + path + "\"");
+        } catch (Exception e) {
+            LOGGER.warning("Failed to publish preview of \"" + path + "\"", e);
+        }
+    }
+
     /**
      * Try to write data to disk
+     * @param maps  Maps to write
+     * @param delay Delay between steps
      */
-    private void tryToWriteToDisk() {
+    private void tryToWriteToDisk(@NotNull FakeMap[][][] maps, int delay) {
         mkdirs();
         try (RandomAccessFile stream = write()) {
             int numOfSteps = maps[0][0].length;
@@ -1,8 +1,11 @@
 package io.josemmo.bukkit.plugin.storage;
 
+import io.josemmo.bukkit.plugin.YamipaPlugin;
 import io.josemmo.bukkit.plugin.renderer.FakeImage;
 import io.josemmo.bukkit.plugin.renderer.FakeItemFrame;
+import io.josemmo.bukkit.plugin.renderer.FakeMap;
 import io.josemmo.bukkit.plugin.utils.Logger;
+import org.bukkit.Bukkit;
 import org.jetbrains.annotations.Blocking;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -19,14 +22,17 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class ImageFile extends SynchronizedFile {
     private static final Logger LOGGER = Logger.getLogger("ImageFile");
     private final ConcurrentHashMap<String, Lock> locks = new ConcurrentHashMap<>();
     private final Map<String, CachedMapsFile> cache = new HashMap<>();
     private final Map<String, Set<FakeImage>> subscribers = new HashMap<>();
+    private final Map<String, Long> warmUntil = new HashMap<>(); // Prefetched maps expiration times
     private final String filename;
     private @Nullable Dimension size;
+    private int numOfSteps = 0;
 
     /**
      * Class constructor
@@ -65,13 +71,59 @@ public class ImageFile extends SynchronizedFile {
         }
     }
 
+    /**
+     * Get number of animation steps
+     * @return Number of steps or <code>0</code> if not a valid image file
+     */
+    public synchronized int getNumOfSteps() {
+        if (numOfSteps > 0) {
+            return numOfSteps;
+        }
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(read())) {
+            ImageReader reader = ImageIO.getImageReaders(inputStream).next();
+            reader.setInput(inputStream);
+            numOfSteps = reader.getNumImages(true);
+            reader.dispose();
+            return numOfSteps;
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Get estimated memory cost of rendering
+     * @param  width  Width in blocks
+     * @param  height Height in blocks
+     * @return        Estimated number of bytes, <code>0</code> if maps do not need to be rendered
+     */
+    @Blocking
+    public long getRenderCost(int width, int height) {
+        synchronized (this) {
+            if (cache.containsKey(width + "-" + height)) {
+                return 0;
+            }
+        }
+        if (CachedMapsFile.isWarm(this, width, height)) {
+            return 0;
+        }
+        Dimension size = getSize();
+        if (size == null) {
+            return 0;
+        }
+        return 4L * size.width * size.height * Math.max(getNumOfSteps(), 1);
+    }
+
     /**
      * Get maps and subscribe to them
      * @param  subscriber Fake image instance requesting the maps
+     * @param  onPreview  Callback for receiving a preview of the first step if maps need to be rendered
      * @return            Cached maps
      */
     @Blocking
-    public @NotNull CachedMapsFile getMapsAndSubscribe(@NotNull FakeImage subscriber) {
+    public @NotNull CachedMapsFile getMapsAndSubscribe(
+        @NotNull FakeImage subscriber,
+        @Nullable Consumer<FakeMap[][][]> onPreview
+    ) {
         int width = subscriber.getWidth();
         int height = subscriber.getHeight();
         String cacheKey = width + "-" + height;
@@ -83,7 +135,7 @@ public class ImageFile extends SynchronizedFile {
         // Get cached maps without locking this instance
         CachedMapsFile maps = cache.get(cacheKey);
         if (maps == null) {
-            maps = CachedMapsFile.from(this, width, height);
+            maps = CachedMapsFile.from(this, width, height, onPreview);
         }
 
         // Update state of this instance
@@ -98,6 +150,69 @@ public class ImageFile extends SynchronizedFile {
         }
     }
 
+    /**
+     * Prefetch maps
+     * <p>
+     * Loads maps into the memory cache (rendering them if needed) without subscribing to them, so they are ready by
+     * the time a fake image requests them. Unless some fake image subscribes to them, maps are cleared from memory
+     * after the provided time.
+     * @param width  Width in blocks
+     * @param height Height in blocks
+     * @param ttl    Time in milliseconds to keep maps in memory
+     */
+    @Blocking
+    public void prefetch(int width, int height, long ttl) {
+        String cacheKey = width + "-" + height;
+
+        // Prevent maps from being cleared while prefetching
+        synchronized (this) {
+            warmUntil.merge(cacheKey, System.currentTimeMillis()+ttl, Math::max);
+        }
+
+        // Prevent rendering the same image/dimensions pair multiple times
+        Lock lock = locks.computeIfAbsent(cacheKey, __ -> new ReentrantLock());
+        lock.lock();
+
+        // Get cached maps without locking this instance
+        CachedMapsFile maps = cache.get(cacheKey);
+        if (maps == null) {
+            maps = CachedMapsFile.from(this, width, height, null);
+            LOGGER.fine("Prefetched maps \"" + cacheKey + "\" in ImageFile#(" + filename + ")");
+        }
+
+        // Update state of this instance
+        synchronized (this) {
+            if (cache.get(cacheKey) != maps) {
+                cache.put(cacheKey, maps);
+            }
+            warmUntil.merge(cacheKey, System.currentTimeMillis()+ttl, Math::max);
+            lock.unlock();
+            locks.remove(cacheKey);
+        }
+
+        // Schedule expiration
+        long delayTicks = ttl/50 + 1;
+        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> expire(cacheKey), delayTicks);
+    }
+
+    /**
+     * Expire prefetched maps
+     * @param cacheKey Cache key
+     */
+    private synchronized void expire(@NotNull String cacheKey) {
+        Long expiresAt = warmUntil.get(cacheKey);
+        if (expiresAt == null || expiresAt > System.currentTimeMillis()) {
+            // Not prefetched or expiration time was extended
+            return;
+        }
+        warmUntil.remove(cacheKey);
+        if (!subscribers.containsKey(cacheKey)) {
+            cache.remove(cacheKey);
+            LOGGER.fine("Expired prefetched maps \"" + cacheKey + "\" in ImageFile#(" + filename + ")");
+        }
+    }
+
     /**
      * Unsubscribe from memory cache
      * <p>
@@ -120,6 +235,10 @@ public class ImageFile extends SynchronizedFile {
         // Can we clear cached maps?
         if (currentSubscribers.isEmpty()) {
             subscribers.remove(cacheKey);
+            if (warmUntil.containsKey(cacheKey)) {
+                // Prefetched maps get cleared once they expire
+                return;
+            }
             cache.remove(cacheKey);
             LOGGER.fine("Invalidated cached maps \"" + cacheKey + "\" in ImageFile#(" + filename + ")");
         }
@@ -133,7 +252,9 @@ public class ImageFile extends SynchronizedFile {
      */
     public synchronized void invalidate() {
         size = null;
+        numOfSteps = 0;
         cache.clear();
+        warmUntil.clear();
         CachedMapsFile.deleteAll(this);
     }
 }
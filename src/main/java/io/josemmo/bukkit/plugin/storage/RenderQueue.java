@@ -0,0 +1,451 @@
+package io.josemmo.bukkit.plugin.storage;
+
+import io.josemmo.bukkit.plugin.YamipaPlugin;
+import io.josemmo.bukkit.plugin.renderer.FakeImage;
+import io.josemmo.bukkit.plugin.utils.Logger;
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.NotNull;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Service for scheduling the rendering of image files.
+ * <p>
+ * Jobs are deduplicated per image file and dimensions, so fake images that need the same maps share a single render.
+ * Queued jobs are started in order of priority class and then by the number of players waiting for them and how close
+ * they are, without exceeding a maximum number of concurrent renders nor an estimated memory budget.
+ * <p>
+ * Background jobs (<i>e.g.,</i> pre-warming) always leave a render slot free for more urgent jobs, unless there is only
+ * one slot.
+ */
+public class RenderQueue {
+    private static final Logger LOGGER = Logger.getLogger("RenderQueue");
+    private static final Object PREFETCH_SUBSCRIBER = new Object();
+    private static final long RETRY_DELAY = 20L; // In server ticks
+    private final int maxConcurrentRenders;
+    private final long maxMemory;
+    private final Executor ioExecutor;
+    private final Executor renderExecutor;
+    private final Map<String, Job> jobs = new HashMap<>(); // Guarded by "this"
+    private final PriorityQueue<Job> ready = new PriorityQueue<>(); // Guarded by "this"
+    private int numOfRunningJobs = 0; // Guarded by "this"
+    private long usedMemory = 0; // Guarded by "this"
+    private long lastSequence = 0; // Guarded by "this"
+    private boolean isRetryScheduled = false; // Guarded by "this"
+    private boolean isStopped = false; // Guarded by "this"
+
+    /**
+     * Job priority class
+     */
+    public enum Priority {
+        /** Images placed by a player who is waiting for them */
+        INTERACTIVE,
+        /** Images some player has walked near to */
+        NORMAL,
+        /** Images no player is waiting for yet */
+        BACKGROUND
+    }
+
+    /**
+     * Class constructor
+     * @param maxConcurrentRenders Maximum number of jobs to run at the same time
+     * @param maxMemory            Maximum estimated memory in bytes used by running jobs (<code>0</code> for unlimited)
+     * @param ioExecutor           Executor for estimating the cost of jobs
+     * @param renderExecutor       Executor for running jobs
+     */
+    public RenderQueue(
+        int maxConcurrentRenders,
+        long maxMemory,
+        @NotNull Executor ioExecutor,
+        @NotNull Executor renderExecutor
+    ) {
+        this.maxConcurrentRenders = Math.max(maxConcurrentRenders, 1);
+        this.maxMemory = maxMemory;
+        this.ioExecutor = ioExecutor;
+        this.renderExecutor = renderExecutor;
+    }
+
+    /**
+     * Stop service
+     * <p>
+     * Discards all queued jobs (including those whose cost is being estimated). Running jobs are left to finish on
+     * their own.
+     */
+    public synchronized void stop() {
+        isStopped = true;
+        jobs.values().removeIf(job -> !job.running);
+        ready.clear();
+    }
+
+    /**
+     * Get number of queued jobs
+     * @return Number of jobs waiting to be started
+     */
+    public synchronized int getNumOfQueuedJobs() {
+        return jobs.size() - numOfRunningJobs;
+    }
+
+    /**
+     * Get number of queued urgent jobs
+     * @return Number of non-background jobs waiting to be started
+     */
+    public synchronized int getNumOfQueuedUrgentJobs() {
+        int count = 0;
+        for (Job job : jobs.values()) {
+            if (!job.running && job.priority != Priority.BACKGROUND) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get number of running jobs
+     * @return Number of jobs being rendered
+     */
+    public synchronized int getNumOfRunningJobs() {
+        return numOfRunningJobs;
+    }
+
+    /**
+     * Get estimated memory used by running jobs
+     * @return Memory in bytes
+     */
+    public synchronized long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * Submit job
+     * <p>
+     * If there is already a job for the same image file and dimensions, the subscriber gets attached to it.
+     * @param file            Image file to render
+     * @param subscriber      Fake image that needs the rendered maps
+     * @param priority        Priority class
+     * @param distanceSquared Squared distance in blocks from the waiting player to the image
+     * @param callback        Callback to run in the render thread, it must get the maps from the image file
+     */
+    public void submit(
+        @NotNull ImageFile file,
+        @NotNull FakeImage subscriber,
+        @NotNull Priority priority,
+        double distanceSquared,
+        @NotNull Runnable callback
+    ) {
+        int width = subscriber.getWidth();
+        int height = subscriber.getHeight();
+        submit(file, width, height, subscriber, priority, distanceSquared, 0, callback);
+    }
+
+    /**
+     * Submit prefetch job
+     * <p>
+     * Prefetch jobs always have background priority and do not count as waiters. If there is already a prefetch
+     * callback for the same image file and dimensions, the new one is discarded but its deadline is kept.
+     * Prefetch callbacks that have not started by their deadline get dropped, as the player should be there by then.
+     * @param file            Image file to render
+     * @param width           Width in blocks
+     * @param height          Height in blocks
+     * @param distanceSquared Squared distance in blocks from the predicted player location to the image
+     * @param deadline        Timestamp in milliseconds after which the callback is no longer useful
+     * @param callback        Callback to run in the render thread, it must warm up the image file
+     */
+    public void prefetch(
+        @NotNull ImageFile file,
+        int width,
+        int height,
+        double distanceSquared,
+        long deadline,
+        @NotNull Runnable callback
+    ) {
+        submit(file, width, height, PREFETCH_SUBSCRIBER, Priority.BACKGROUND, distanceSquared, deadline, callback);
+    }
+
+    /**
+     * Submit job
+     * @param file            Image file to render
+     * @param width           Width in blocks
+     * @param height          Height in blocks
+     * @param subscriber      Fake image that needs the rendered maps or {@link #PREFETCH_SUBSCRIBER}
+     * @param priority        Priority class
+     * @param distanceSquared Squared distance in blocks from the waiting player to the image
+     * @param deadline        Prefetch deadline timestamp in milliseconds (ignored for fake images)
+     * @param callback        Callback to run in the render thread
+     */
+    private void submit(
+        @NotNull ImageFile file,
+        int width,
+        int height,
+        @NotNull Object subscriber,
+        @NotNull Priority priority,
+        double distanceSquared,
+        long deadline,
+        @NotNull Runnable callback
+    ) {
+        String key = file.getFilename() + "/" + width + "-" + height;
+        Job job;
+        boolean isNew = false;
+        synchronized (this) {
+            job = jobs.get(key);
+            if (job == null) {
+                job = new Job(key, ++lastSequence);
+                jobs.put(key, job);
+                isNew = true;
+            }
+            if (subscriber == PREFETCH_SUBSCRIBER) {
+                job.prefetchDeadline = Math.max(job.prefetchDeadline, deadline);
+            }
+            if (job.callbacks.putIfAbsent(subscriber, callback) != null && subscriber == PREFETCH_SUBSCRIBER) {
+                return;
+            }
+            update(job, priority, distanceSquared, subscriber != PREFETCH_SUBSCRIBER);
+        }
+        if (isNew) {
+            estimateCost(job, file, width, height);
+        } else {
+            dispatch();
+        }
+    }
+
+    /**
+     * Notify another player is waiting for a job
+     * <p>
+     * Has no effect if the subscriber is not waiting for a queued job.
+     * @param file            Image file to render
+     * @param subscriber      Fake image that needs the rendered maps
+     * @param distanceSquared Squared distance in blocks from the waiting player to the image
+     */
+    public synchronized void boost(@NotNull ImageFile file, @NotNull FakeImage subscriber, double distanceSquared) {
+        Job job = jobs.get(file.getFilename() + "/" + subscriber.getWidth() + "-" + subscriber.getHeight());
+        if (job != null && job.callbacks.containsKey(subscriber)) {
+            update(job, Priority.BACKGROUND, distanceSquared, true);
+        }
+    }
+
+    /**
+     * Cancel job for a subscriber
+     * @param  file       Image file to render
+     * @param  subscriber Fake image that no longer needs the rendered maps
+     * @return            Whether the callback was removed before it started running
+     */
+    public synchronized boolean cancel(@NotNull ImageFile file, @NotNull FakeImage subscriber) {
+        Job job = jobs.get(file.getFilename() + "/" + subscriber.getWidth() + "-" + subscriber.getHeight());
+        if (job == null || job.callbacks.remove(subscriber) == null) {
+            return false;
+        }
+        if (job.callbacks.isEmpty() && !job.running) {
+            ready.remove(job);
+            jobs.remove(job.key);
+            LOGGER.fine("Cancelled render job \"" + job.key + "\"");
+        }
+        return true;
+    }
+
+    /**
+     * Update job priority
+     * @param job             Job instance
+     * @param priority        Priority class requested by the new waiter
+     * @param distanceSquared Squared distance in blocks from the new waiter to the image
+     * @param isWaiter        Whether a player is actually waiting for the job
+     */
+    private void update(@NotNull Job job, @NotNull Priority priority, double distanceSquared, boolean isWaiter) {
+        boolean isReady = !job.running && ready.remove(job);
+        if (priority.ordinal() < job.priority.ordinal()) {
+            job.priority = priority;
+        }
+        job.distanceSquared = Math.min(job.distanceSquared, distanceSquared);
+        if (isWaiter) {
+            job.numOfWaiters++;
+        }
+        if (isReady) {
+            ready.add(job);
+        }
+    }
+
+    /**
+     * Estimate job memory cost in the I/O thread
+     * @param job    Job instance
+     * @param file   Image file to render
+     * @param width  Width in blocks
+     * @param height Height in blocks
+     */
+    private void estimateCost(@NotNull Job job, @NotNull ImageFile file, int width, int height) {
+        Runnable task = () -> {
+            long cost = file.getRenderCost(width, height);
+            synchronized (this) {
+                job.cost = cost;
+                if (jobs.get(job.key) == job) {
+                    ready.add(job);
+                }
+            }
+            dispatch();
+        };
+        try {
+            ioExecutor.execute(task);
+        } catch (RejectedExecutionException __) {
+            synchronized (this) {
+                ready.add(job);
+            }
+            dispatch();
+        }
+    }
+
+    /**
+     * Start as many queued jobs as allowed
+     * <p>
+     * Jobs rejected by a full render executor are put back in the queue and retried on the next dispatch, which is
+     * scheduled after a short delay in case no other job finishes or gets submitted meanwhile.
+     */
+    private void dispatch() {
+        while (true) {
+            // Take next job to start
+            Job job;
+            synchronized (this) {
+                job = ready.peek();
+                if (job == null) {
+                    return;
+                }
+                boolean isPrefetch = job.callbacks.containsKey(PREFETCH_SUBSCRIBER);
+                if (isPrefetch && job.prefetchDeadline < System.currentTimeMillis()) {
+                    // Drop expired prefetch callback
+                    job.callbacks.remove(PREFETCH_SUBSCRIBER);
+                    if (job.callbacks.isEmpty()) {
+                        ready.poll();
+                        jobs.remove(job.key);
+                        LOGGER.fine("Dropped expired prefetch job \"" + job.key + "\"");
+                    }
+                    continue;
+                }
+                if (numOfRunningJobs >= maxConcurrentRenders) {
+                    return;
+                }
+                if (
+                    job.priority == Priority.BACKGROUND &&
+                    maxConcurrentRenders > 1 &&
+                    numOfRunningJobs >= maxConcurrentRenders-1
+                ) {
+                    // Leave a free slot for more urgent jobs
+                    return;
+                }
+                if (maxMemory > 0 && numOfRunningJobs > 0 && usedMemory+job.cost > maxMemory) {
+                    // Wait for running jobs to free some memory
+                    return;
+                }
+                ready.poll();
+                job.running = true;
+                numOfRunningJobs++;
+                usedMemory += job.cost;
+            }
+
+            // Start job
+            try {
+                renderExecutor.execute(() -> run(job));
+                LOGGER.fine("Started render job \"" + job.key + "\" (" + job.priority + ", " + job.numOfWaiters +
+                    " waiter(s), ~" + (job.cost >> 20) + "MiB)");
+            } catch (RejectedExecutionException e) {
+                LOGGER.warning("Render executor is full, will retry job \"" + job.key + "\" later");
+                synchronized (this) {
+                    job.running = false;
+                    numOfRunningJobs--;
+                    usedMemory -= job.cost;
+                    ready.add(job);
+                    if (isStopped || isRetryScheduled) {
+                        return;
+                    }
+                    isRetryScheduled = true;
+                }
+                scheduleRetry(this::retry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retry dispatching queued jobs
+     */
+    private void retry() {
+        synchronized (this) {
+            isRetryScheduled = false;
+        }
+        dispatch();
+    }
+
+    /**
+     * Schedule retry of rejected jobs
+     * @param task Task to run after {@link #RETRY_DELAY} ticks
+     */
+    void scheduleRetry(@NotNull Runnable task) {
+        Bukkit.getScheduler().runTaskLaterAsynchronously(YamipaPlugin.getInstance(), task, RETRY_DELAY);
+    }
+
+    /**
+     * Run job callbacks
+     * <p>
+     * Once there are no more callbacks, the job is completed and the next queued jobs get started.
+     * @param job Job instance
+     */
+    private void run(@NotNull Job job) {
+        while (true) {
+            // Take next callback
+            Runnable callback;
+            synchronized (this) {
+                Iterator<Runnable> iterator = job.callbacks.values().iterator();
+                if (iterator.hasNext()) {
+                    callback = iterator.next();
+                    iterator.remove();
+                } else {
+                    jobs.remove(job.key);
+                    numOfRunningJobs--;
+                    usedMemory -= job.cost;
+                    break;
+                }
+            }
+
+            // Run callback
+            try {
+                callback.run();
+            } catch (Exception e) {
+                LOGGER.severe("Failed to run render job \"" + job.key + "\"", e);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Render job
+     */
+    private static class Job implements Comparable<Job> {
+        private final String key;
+        private final long sequence;
+        private final Map<Object, Runnable> callbacks = new LinkedHashMap<>(); // Fake images or prefetch marker
+        private Priority priority = Priority.BACKGROUND;
+        private double distanceSquared = Double.MAX_VALUE;
+        private int numOfWaiters = 0;
+        private long cost = 0;
+        private long prefetchDeadline = 0;
+        private boolean running = false;
+
+        private Job(@NotNull String key, long sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Get score
+         * @return Score (lower values get started first)
+         */
+        private double getScore() {
+            return Math.sqrt(distanceSquared) / Math.max(numOfWaiters, 1);
+        }
+
+        @Override
+        public int compareTo(@NotNull Job other) {
+            int result = Integer.compare(priority.ordinal(), other.priority.ordinal());
+            if (result == 0) {
+                result = Double.compare(getScore(), other.getScore());
+            }
+            return (result == 0) ? Long.compare(sequence, other.sequence) : result;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package io.josemmo.bukkit.plugin.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pool that keeps track of its queue depth and task latencies.
+ * <p>
+ * When the queue is full, tasks are rejected with a {@link RejectedExecutionException}. Tasks are never run on the
+ * caller thread, as callers (<i>e.g.,</i> the server main thread or the movement thread) may be holding locks that
+ * would be kept for the whole duration of the task. It is up to the caller to retry or fall back to something cheaper.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+    private static final Logger LOGGER = Logger.getLogger("InstrumentedExecutor");
+    private static final double EMA_WEIGHT = 0.1;
+    private final String name;
+    private double averageWaitTime = 0; // In milliseconds, guarded by "this"
+    private double averageRunTime = 0; // In milliseconds, guarded by "this"
+
+    /**
+     * Get virtual thread factory
+     * <p>
+     * Virtual threads are only available in Java 21+, so they are obtained using reflection.
+     * @param  name Executor name
+     * @return      Virtual thread factory or NULL if not supported
+     */
+    private static @Nullable ThreadFactory getVirtualThreadFactory(@NotNull String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "Yamipa-" + name + "-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception __) {
+            return null;
+        }
+    }
+
+    /**
+     * Get platform thread factory
+     * @param  name Executor name
+     * @return      Thread factory
+     */
+    private static @NotNull ThreadFactory getPlatformThreadFactory(@NotNull String name) {
+        AtomicInteger lastThreadId = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, "Yamipa-" + name + "-" + lastThreadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Create instance
+     * @param  name              Executor name (for logging and thread names)
+     * @param  numOfThreads      Number of threads
+     * @param  maxQueueSize      Maximum number of queued tasks (<code>0</code> for unlimited)
+     * @param  useVirtualThreads Whether to use virtual threads (if supported by the JVM)
+     * @return                   Executor instance
+     */
+    public static @NotNull InstrumentedExecutor create(
+        @NotNull String name,
+        int numOfThreads,
+        int maxQueueSize,
+        boolean useVirtualThreads
+    ) {
+        ThreadFactory threadFactory = null;
+        if (useVirtualThreads) {
+            threadFactory = getVirtualThreadFactory(name);
+            if (threadFactory == null) {
+                LOGGER.warning("Virtual threads are not supported by this JVM, using platform threads for " + name);
+            }
+        }
+        if (threadFactory == null) {
+            threadFactory = getPlatformThreadFactory(name);
+        }
+        BlockingQueue<Runnable> queue = (maxQueueSize > 0) ?
+            new LinkedBlockingQueue<>(maxQueueSize) :
+            new LinkedBlockingQueue<>();
+        return new InstrumentedExecutor(name, Math.max(numOfThreads, 1), queue, threadFactory);
+    }
+
+    /**
+     * Class constructor
+     * @param name          Executor name
+     * @param numOfThreads  Number of threads
+     * @param queue         Task queue
+     * @param threadFactory Thread factory
+     */
+    private InstrumentedExecutor(
+        @NotNull String name,
+        int numOfThreads,
+        @NotNull BlockingQueue<Runnable> queue,
+        @NotNull ThreadFactory threadFactory
+    ) {
+        super(numOfThreads, numOfThreads, 60L, TimeUnit.SECONDS, queue, threadFactory, (task, executor) -> {
+            throw new RejectedExecutionException(executor.isShutdown() ?
+                "Executor " + name + " is shut down" :
+                "Queue of " + name + " executor is full");
+        });
+        this.name = name;
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get executor name
+     * @return Executor name
+     */
+    public @NotNull String getName() {
+        return name;
+    }
+
+    /**
+     * Get number of queued tasks
+     * @return Number of tasks waiting for a thread
+     */
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    /**
+     * Get average wait time
+     * @return Average time in milliseconds tasks spend in queue
+     */
+    public synchronized double getAverageWaitTime() {
+        return averageWaitTime;
+    }
+
+    /**
+     * Get average run time
+     * @return Average time in milliseconds tasks take to complete
+     */
+    public synchronized double getAverageRunTime() {
+        return averageRunTime;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        long submittedAt = System.nanoTime();
+        super.execute(() -> {
+            long startedAt = System.nanoTime();
+            try {
+                command.run();
+            } finally {
+                recordLatency(startedAt-submittedAt, System.nanoTime()-startedAt);
+            }
+        });
+    }
+
+    /**
+     * Record task latency
+     * @param waitTime Time in nanoseconds spent in queue
+     * @param runTime  Time in nanoseconds spent running
+     */
+    private synchronized void recordLatency(long waitTime, long runTime) {
+        averageWaitTime += (waitTime/1_000_000.0 - averageWaitTime) * EMA_WEIGHT;
+        averageRunTime += (runTime/1_000_000.0 - averageRunTime) * EMA_WEIGHT;
+    }
+}
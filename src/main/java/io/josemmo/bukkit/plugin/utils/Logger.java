@@ -11,6 +11,7 @@ import java.util.logging.Level;
  * instance has changed (for example, because of the plugin being restarted by a plugin manager).
  */
 public class Logger {
+    private static final java.util.logging.Logger FALLBACK_LOGGER = java.util.logging.Logger.getLogger("YamipaPlugin");
     private final @Nullable String name;
 
     /**
@@ -45,11 +46,13 @@ public class Logger {
      * @param e       Optional throwable to log
      */
     private void log(@NotNull Level level, @NotNull String message, @Nullable Throwable e) {
-        YamipaPlugin plugin = YamipaPlugin.getInstance();
+        // Fall back to standard logger when plugin is not running (e.g., unit tests)
+        YamipaPlugin plugin = YamipaPlugin.isRunning() ? YamipaPlugin.getInstance() : null;
+        java.util.logging.Logger logger = (plugin == null) ? FALLBACK_LOGGER : plugin.getLogger();
 
         // Handle verbose logging levels
         if (level.intValue() < Level.INFO.intValue()) {
-            if (!plugin.isVerbose()) return;
+            if (plugin == null || !plugin.isVerbose()) return;
             level = Level.INFO;
         }
 
@@ -60,9 +63,9 @@ public class Logger {
 
         // Proxy record to real logger
         if (e == null) {
-            plugin.getLogger().log(level, message);
+            logger.log(level, message);
         } else {
-            plugin.getLogger().log(level, message, e);
+            logger.log(level, message, e);
         }
     }
 
@@ -0,0 +1,197 @@
+package io.josemmo.bukkit.plugin.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash map with primitive <code>long</code> keys.
+ * <p>
+ * Uses open addressing with linear probing, so lookups neither box keys nor allocate entries.
+ * NULL values are not supported. This class is not thread-safe.
+ * @param <V> Value type
+ */
+public class LongHashMap<V> {
+    private static final int MIN_CAPACITY = 16;
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    /**
+     * Class constructor
+     */
+    public LongHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * Get hash slot for key
+     * @param  key  Key
+     * @param  mask Capacity minus one
+     * @return      Initial slot index
+     */
+    private static int slot(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    /**
+     * Get number of entries
+     * @return Number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is empty
+     * @return Whether map has no entries
+     */
+    public boolean isEmpty() {
+        return (size == 0);
+    }
+
+    /**
+     * Get value
+     * @param  key Key
+     * @return     Value or NULL if not found
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key) {
+        int mask = keys.length - 1;
+        for (int i=slot(key, mask); values[i] != null; i=(i+1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Put value
+     * @param  key   Key
+     * @param  value Value
+     * @return       Previous value or NULL if none
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V put(long key, @NotNull V value) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != null; i=(i+1) & mask) {
+            if (keys[i] == key) {
+                V prevValue = (V) values[i];
+                values[i] = value;
+                return prevValue;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size*2 > keys.length) {
+            resize(keys.length*2);
+        }
+        return null;
+    }
+
+    /**
+     * Remove value
+     * @param  key Key
+     * @return     Removed value or NULL if not found
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != null; i=(i+1) & mask) {
+            if (keys[i] == key) {
+                break;
+            }
+        }
+        if (values[i] == null) {
+            return null;
+        }
+        V removedValue = (V) values[i];
+        size--;
+
+        // Shift back following entries of the same cluster
+        int gap = i;
+        for (int j=(i+1) & mask; values[j] != null; j=(j+1) & mask) {
+            int home = slot(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+
+        // Shrink if mostly empty
+        if (keys.length > MIN_CAPACITY && size*8 < keys.length) {
+            resize(keys.length/2);
+        }
+        return removedValue;
+    }
+
+    /**
+     * Get all keys
+     * @return Snapshot of keys
+     */
+    public @NotNull long[] keys() {
+        long[] response = new long[size];
+        int index = 0;
+        for (int i=0; i<keys.length; i++) {
+            if (values[i] != null) {
+                response[index++] = keys[i];
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Get all values
+     * @return Snapshot of values
+     */
+    @SuppressWarnings("unchecked")
+    public @NotNull List<V> values() {
+        List<V> response = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                response.add((V) value);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Resize tables
+     * @param capacity New capacity (power of two)
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int j=0; j<oldKeys.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = slot(oldKeys[j], mask);
+            while (values[i] != null) {
+                i = (i+1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
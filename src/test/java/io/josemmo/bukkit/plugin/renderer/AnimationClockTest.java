@@ -0,0 +1,111 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Rotation;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnimationClockTest {
+    private static final World WORLD = createProxy(World.class);
+    private static final OfflinePlayer PLAYER = createProxy(OfflinePlayer.class);
+
+    private static <T> @NotNull T createProxy(@NotNull Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "getName":
+                        return "world";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        ));
+    }
+
+    /**
+     * Fake image that counts its animation steps
+     */
+    private static class CountingImage extends FakeImage {
+        private final @Nullable Runnable onStep;
+        private int numOfSteps = 0;
+
+        private CountingImage(@Nullable Runnable onStep) {
+            super("test.gif", new Location(WORLD, 0, 64, 0), BlockFace.UP, Rotation.NONE, 1, 1, null, PLAYER, 0);
+            this.onStep = onStep;
+        }
+
+        @Override
+        void nextStep() {
+            numOfSteps++;
+            if (onStep != null) {
+                onStep.run();
+            }
+        }
+    }
+
+    @Test
+    public void imagesAdvanceEveryDelayTicks() {
+        AnimationClock clock = new AnimationClock();
+        CountingImage fast = new CountingImage(null);
+        CountingImage slow = new CountingImage(null);
+        CountingImage slowest = new CountingImage(null);
+        clock.register(fast, 1);
+        clock.register(slow, 3);
+        clock.register(slowest, FakeImage.MAX_DELAY + 10);
+
+        for (int i=0; i<FakeImage.MAX_DELAY; i++) {
+            clock.tick();
+        }
+        assertEquals(FakeImage.MAX_DELAY, clock.getCurrentTick());
+        assertEquals(FakeImage.MAX_DELAY, fast.numOfSteps);
+        assertEquals(FakeImage.MAX_DELAY / 3, slow.numOfSteps);
+        assertEquals(1, slowest.numOfSteps, "Delays must be capped");
+
+        clock.unregister(fast, 1);
+        clock.tick();
+        assertEquals(FakeImage.MAX_DELAY, fast.numOfSteps);
+    }
+
+    @Test
+    public void failingImagesDoNotStopOthers() {
+        AnimationClock clock = new AnimationClock();
+        CountingImage failing = new CountingImage(() -> {
+            throw new IllegalStateException("Failed to render step");
+        });
+        CountingImage other = new CountingImage(null);
+        clock.register(failing, 1);
+        clock.register(other, 1);
+
+        clock.tick();
+        clock.tick();
+        assertEquals(2, failing.numOfSteps);
+        assertEquals(2, other.numOfSteps);
+    }
+
+    @Test
+    public void overlappingTicksAreSkipped() {
+        AnimationClock clock = new AnimationClock();
+        CountingImage image = new CountingImage(clock::tick); // Tick fired while the previous one is still running
+        clock.register(image, 1);
+
+        clock.tick();
+        assertEquals(1, image.numOfSteps);
+        assertEquals(1, clock.getCurrentTick());
+
+        clock.tick();
+        assertEquals(2, image.numOfSteps);
+        assertEquals(2, clock.getCurrentTick());
+    }
+}
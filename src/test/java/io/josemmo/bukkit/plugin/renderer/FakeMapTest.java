@@ -0,0 +1,184 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FakeMapTest {
+    private static final int DIMENSION = FakeMap.DIMENSION;
+
+    private static byte[] getBlankPixels() {
+        return new byte[DIMENSION*DIMENSION];
+    }
+
+    private static boolean isInside(@NotNull MapArea area, int x, int z) {
+        return x >= area.getX() && x < area.getX()+area.getColumns() &&
+               z >= area.getZ() && z < area.getZ()+area.getRows();
+    }
+
+    @Test
+    public void identicalPixelsHaveNoDirtyAreas() {
+        byte[] pixels = getBlankPixels();
+        pixels[123] = 42;
+        assertEquals(0, FakeMap.getDirtyAreas(pixels, pixels.clone()).length);
+    }
+
+    @Test
+    public void singleChangedPixelIsDirty() {
+        byte[] prevPixels = getBlankPixels();
+        byte[] pixels = getBlankPixels();
+        pixels[7*DIMENSION+5] = 1;
+
+        MapArea[] areas = FakeMap.getDirtyAreas(prevPixels, pixels);
+        assertEquals(1, areas.length);
+        assertEquals(5, areas[0].getX());
+        assertEquals(7, areas[0].getZ());
+        assertEquals(1, areas[0].getColumns());
+        assertEquals(1, areas[0].getRows());
+    }
+
+    @Test
+    public void nearbyRowsAreMerged() {
+        byte[] prevPixels = getBlankPixels();
+        byte[] pixels = getBlankPixels();
+        pixels[20*DIMENSION+10] = 1;
+        pixels[21*DIMENSION+11] = 1;
+
+        MapArea[] areas = FakeMap.getDirtyAreas(prevPixels, pixels);
+        assertEquals(1, areas.length);
+        assertEquals(10, areas[0].getX());
+        assertEquals(20, areas[0].getZ());
+        assertEquals(2, areas[0].getColumns());
+        assertEquals(2, areas[0].getRows());
+    }
+
+    @Test
+    public void distantRowsAreNotMerged() {
+        byte[] prevPixels = getBlankPixels();
+        byte[] pixels = getBlankPixels();
+        pixels[0] = 1;
+        pixels[DIMENSION*DIMENSION-1] = 1;
+
+        MapArea[] areas = FakeMap.getDirtyAreas(prevPixels, pixels);
+        assertEquals(2, areas.length);
+        assertTrue(isInside(areas[0], 0, 0));
+        assertEquals(1, areas[0].size());
+        assertTrue(isInside(areas[1], DIMENSION-1, DIMENSION-1));
+        assertEquals(1, areas[1].size());
+    }
+
+    @Test
+    public void dirtyAreasCoverAllChangedPixels() {
+        Random random = new Random(1234);
+        for (int iteration=0; iteration<50; iteration++) {
+            byte[] prevPixels = getBlankPixels();
+            byte[] pixels = getBlankPixels();
+            int numOfChanges = random.nextInt(200);
+            for (int i=0; i<numOfChanges; i++) {
+                pixels[random.nextInt(pixels.length)] = (byte) (1 + random.nextInt(100));
+            }
+
+            MapArea[] areas = FakeMap.getDirtyAreas(prevPixels, pixels);
+            int prevEndZ = 0;
+            for (MapArea area : areas) {
+                assertTrue(area.getZ() >= prevEndZ, "Areas must not overlap");
+                assertTrue(area.getX() >= 0 && area.getX()+area.getColumns() <= DIMENSION);
+                assertTrue(area.getZ()+area.getRows() <= DIMENSION);
+                prevEndZ = area.getZ() + area.getRows();
+            }
+            for (int z=0; z<DIMENSION; z++) {
+                for (int x=0; x<DIMENSION; x++) {
+                    if (prevPixels[z*DIMENSION+x] == pixels[z*DIMENSION+x]) continue;
+                    boolean covered = false;
+                    for (MapArea area : areas) {
+                        if (isInside(area, x, z)) {
+                            covered = true;
+                            break;
+                        }
+                    }
+                    assertTrue(covered, "Changed pixel (" + x + "," + z + ") is not inside any dirty area");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void deltaStepsShareMapId() {
+        byte[] first = getBlankPixels();
+        byte[] second = getBlankPixels();
+        second[0] = 1;
+        FakeMap[] steps = new FakeMap[] {new FakeMap(first), new FakeMap(second), new FakeMap(first)};
+
+        FakeMap[] deltaSteps = FakeMap.toDeltaSteps(steps);
+        assertEquals(steps.length, deltaSteps.length);
+        for (int step=0; step<deltaSteps.length; step++) {
+            assertTrue(deltaSteps[step].isDelta());
+            assertEquals(steps[0].getId(), deltaSteps[step].getId());
+            assertSame(steps[step].getPixels(), deltaSteps[step].getPixels());
+        }
+    }
+
+    @Test
+    public void deltaStepsTrackChangesSincePreviousStep() {
+        byte[] first = getBlankPixels();
+        byte[] second = getBlankPixels();
+        second[3*DIMENSION+2] = 1;
+        FakeMap[] steps = new FakeMap[] {new FakeMap(first), new FakeMap(second)};
+
+        FakeMap[] deltaSteps = FakeMap.toDeltaSteps(steps);
+        for (FakeMap deltaStep : deltaSteps) {
+            // First step is compared against the last one, so both have the same changes
+            MapArea[] areas = deltaStep.getDirtyAreas();
+            assertNotNull(areas);
+            assertEquals(1, areas.length);
+            assertTrue(isInside(areas[0], 2, 3));
+        }
+    }
+
+    @Test
+    public void unchangedDeltaStepsShareInstance() {
+        byte[] first = getBlankPixels();
+        byte[] second = getBlankPixels();
+        second[0] = 1;
+        FakeMap[] steps = new FakeMap[] {
+            new FakeMap(first),
+            new FakeMap(second),
+            new FakeMap(second.clone()),
+            new FakeMap(first),
+        };
+
+        FakeMap[] deltaSteps = FakeMap.toDeltaSteps(steps);
+        assertNotSame(deltaSteps[0], deltaSteps[1]);
+        assertSame(deltaSteps[1], deltaSteps[2]);
+        assertNotSame(deltaSteps[2], deltaSteps[3]);
+    }
+
+    @Test
+    public void staticStepsHaveNoDirtyAreas() {
+        byte[] pixels = getBlankPixels();
+        FakeMap[] deltaSteps = FakeMap.toDeltaSteps(new FakeMap[] {new FakeMap(pixels), new FakeMap(pixels.clone())});
+        assertSame(deltaSteps[0], deltaSteps[1]);
+        assertEquals(0, deltaSteps[0].getDirtyAreas().length);
+    }
+
+    @Test
+    public void copiedDeltaStepsUseGivenMapId() {
+        byte[] first = getBlankPixels();
+        byte[] second = getBlankPixels();
+        second[0] = 1;
+        FakeMap[] deltaSteps = FakeMap.toDeltaSteps(new FakeMap[] {
+            new FakeMap(first),
+            new FakeMap(second),
+            new FakeMap(second),
+        });
+
+        int id = FakeMap.getNextId();
+        FakeMap[] copies = FakeMap.copyDeltaSteps(deltaSteps, id);
+        assertNotEquals(deltaSteps[0].getId(), id);
+        assertEquals(id, copies[0].getId());
+        assertEquals(id, copies[1].getId());
+        assertSame(copies[1], copies[2]);
+        assertSame(deltaSteps[1].getDirtyAreas(), copies[1].getDirtyAreas());
+    }
+}
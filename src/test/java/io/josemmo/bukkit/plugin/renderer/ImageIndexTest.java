@@ -0,0 +1,168 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Rotation;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageIndexTest {
+    private static final World WORLD = createWorld("world");
+    private static final World OTHER_WORLD = createWorld("other_world");
+    private static final OfflinePlayer PLAYER = (OfflinePlayer) Proxy.newProxyInstance(
+        OfflinePlayer.class.getClassLoader(),
+        new Class<?>[] {OfflinePlayer.class},
+        (proxy, method, args) -> handleObjectMethod(proxy, method.getName(), args)
+    );
+
+    private static @NotNull World createWorld(@NotNull String name) {
+        return (World) Proxy.newProxyInstance(
+            World.class.getClassLoader(),
+            new Class<?>[] {World.class},
+            (proxy, method, args) -> "getName".equals(method.getName()) ?
+                name :
+                handleObjectMethod(proxy, method.getName(), args)
+        );
+    }
+
+    private static Object handleObjectMethod(@NotNull Object proxy, @NotNull String methodName, Object[] args) {
+        switch (methodName) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Proxy@" + Integer.toHexString(System.identityHashCode(proxy));
+            default:
+                throw new UnsupportedOperationException(methodName);
+        }
+    }
+
+    private static @NotNull FakeImage createImage(@NotNull World world, int x, int z, int width, int height) {
+        Location location = new Location(world, x, 64, z);
+        return new FakeImage("test.png", location, BlockFace.UP, Rotation.NONE, width, height, null, PLAYER, 0);
+    }
+
+    private static @NotNull Set<FakeImage> getExpectedImages(
+        @NotNull List<FakeImage> images,
+        int minX,
+        int maxX,
+        int minZ,
+        int maxZ
+    ) {
+        Set<FakeImage> expected = new HashSet<>();
+        for (FakeImage image : images) {
+            for (Location location : image.getAllLocations()) {
+                int x = location.getBlockX();
+                int z = location.getBlockZ();
+                if (x >= minX && x <= maxX && z >= minZ && z <= maxZ) {
+                    expected.add(image);
+                    break;
+                }
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    public void findsImageAtEveryCoveredBlock() {
+        ImageIndex index = new ImageIndex();
+        FakeImage image = createImage(WORLD, -3, 14, 4, 3);
+        index.add(image);
+
+        for (Location location : image.getAllLocations()) {
+            assertSame(image, index.getImage(location, BlockFace.UP));
+            assertNull(index.getImage(location, BlockFace.DOWN));
+        }
+        assertNull(index.getImage(new Location(WORLD, -4, 64, 14), BlockFace.UP));
+        assertNull(index.getImage(new Location(WORLD, -3, 65, 14), BlockFace.UP));
+        assertNull(index.getImage(new Location(OTHER_WORLD, -3, 64, 14), BlockFace.UP));
+    }
+
+    @Test
+    public void overlappingImagesSurviveRemoval() {
+        ImageIndex index = new ImageIndex();
+        FakeImage first = createImage(WORLD, 0, 0, 2, 2);
+        FakeImage second = createImage(WORLD, 1, 1, 2, 2);
+        Location sharedBlock = new Location(WORLD, 1, 64, 1);
+        index.add(first);
+        index.add(second);
+        assertSame(second, index.getImage(sharedBlock, BlockFace.UP));
+
+        index.remove(second);
+        assertSame(first, index.getImage(sharedBlock, BlockFace.UP));
+        assertNull(index.getImage(new Location(WORLD, 2, 64, 2), BlockFace.UP));
+
+        index.remove(first);
+        assertNull(index.getImage(sharedBlock, BlockFace.UP));
+    }
+
+    @Test
+    public void areaQueriesMatchBruteForce() {
+        Random random = new Random(1234);
+        ImageIndex index = new ImageIndex();
+        List<FakeImage> images = new ArrayList<>();
+        for (int i=0; i<200; i++) {
+            FakeImage image = createImage(
+                WORLD,
+                random.nextInt(400) - 200,
+                random.nextInt(400) - 200,
+                1 + random.nextInt(20),
+                1 + random.nextInt(20)
+            );
+            images.add(image);
+            index.add(image);
+        }
+        index.add(createImage(OTHER_WORLD, 0, 0, 5, 5));
+
+        // Small areas visit cells inside area, large areas visit non-empty cells instead
+        for (int i=0; i<500; i++) {
+            int minX = random.nextInt(500) - 250;
+            int minZ = random.nextInt(500) - 250;
+            int maxX = minX + random.nextInt(64);
+            int maxZ = minZ + random.nextInt(64);
+            if (i % 4 == 1) {
+                maxX = minX + 20_000;
+            } else if (i % 4 == 2) {
+                minZ = maxZ - 20_000;
+            } else if (i % 4 == 3) {
+                minX = maxX - 20_000;
+                maxZ = minZ + 20_000;
+            }
+            assertEquals(
+                getExpectedImages(images, minX, maxX, minZ, maxZ),
+                index.getImages("world", minX, maxX, minZ, maxZ),
+                "Area (" + minX + "," + minZ + ")-(" + maxX + "," + maxZ + ")"
+            );
+        }
+    }
+
+    @Test
+    public void removedImagesAreNotQueried() {
+        ImageIndex index = new ImageIndex();
+        FakeImage kept = createImage(WORLD, 0, 0, 20, 20);
+        FakeImage removed = createImage(WORLD, 10, 10, 20, 20);
+        index.add(kept);
+        index.add(removed);
+        index.remove(removed);
+
+        Set<FakeImage> images = index.getImages("world", -100, 100, -100, 100);
+        assertEquals(1, images.size());
+        assertTrue(images.contains(kept));
+        assertTrue(index.getImages("world", 25, 30, 25, 30).isEmpty());
+        assertTrue(index.getImages("unknown_world", -100, 100, -100, 100).isEmpty());
+
+        index.clear();
+        assertTrue(index.getImages("world", -100, 100, -100, 100).isEmpty());
+        assertNull(index.getImage(new Location(WORLD, 0, 64, 0), BlockFace.UP));
+    }
+}
@@ -0,0 +1,203 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import com.comphenix.protocol.events.PacketContainer;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PacketSchedulerTest {
+    private static final int PACKET_SIZE = 16; // Size in bytes of packets without pixels
+    private static final Player PLAYER = (Player) Proxy.newProxyInstance(
+        Player.class.getClassLoader(),
+        new Class<?>[] {Player.class},
+        (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getName":
+                    return "Steve";
+                case "isOnline":
+                    return true;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+    );
+
+    /**
+     * Get packets
+     * <p>
+     * The scheduler never reads their contents, only counts them, so placeholders are used instead of real packets
+     * (which would require a running server).
+     * @param  count Number of packets
+     * @return       Placeholder packets
+     */
+    private static @NotNull List<PacketContainer> getPackets(int count) {
+        return Collections.nCopies(count, null);
+    }
+
+    /**
+     * Packet scheduler that records sent packets instead of sending them
+     */
+    private static class TestPacketScheduler extends PacketScheduler {
+        private final List<Integer> sentBatches = new ArrayList<>(); // Number of packets sent on each call
+        private boolean writable = true;
+
+        private TestPacketScheduler(int maxBytesPerTick) {
+            super(maxBytesPerTick, 0, 0, 0);
+        }
+
+        @Override
+        boolean isWritable(@NotNull Player player) {
+            return writable;
+        }
+
+        @Override
+        void sendPackets(@NotNull Player player, @NotNull List<PacketContainer> packets) {
+            sentBatches.add(packets.size());
+        }
+    }
+
+    /**
+     * Supplier that records the order in which jobs are built
+     */
+    private static @NotNull Supplier<List<PacketContainer>> record(
+        @NotNull List<String> log,
+        @NotNull String name,
+        int numOfPackets
+    ) {
+        return () -> {
+            log.add(name);
+            return getPackets(numOfPackets);
+        };
+    }
+
+    @Test
+    public void scheduleReplacesPendingJob() {
+        TestPacketScheduler scheduler = new TestPacketScheduler(0);
+        FakeEntity owner = new FakeEntity() {};
+        List<String> log = new ArrayList<>();
+
+        scheduler.schedule(PLAYER, owner, 1, record(log, "first", 1));
+        scheduler.schedule(PLAYER, owner, 1, record(log, "second", 1));
+        assertTrue(scheduler.isPending(PLAYER, owner));
+        assertEquals(1, scheduler.getNumOfPendingJobs());
+
+        scheduler.tick();
+        assertEquals(Collections.singletonList("second"), log);
+        assertFalse(scheduler.isPending(PLAYER, owner));
+        assertEquals(0, scheduler.getNumOfPendingJobs());
+    }
+
+    @Test
+    public void scheduleIfAbsentKeepsPendingJob() {
+        TestPacketScheduler scheduler = new TestPacketScheduler(0);
+        FakeEntity owner = new FakeEntity() {};
+        List<String> log = new ArrayList<>();
+
+        // Delayed spawn jobs are pending too
+        scheduler.schedule(PLAYER, owner, 1, 2, record(log, "spawn", 2));
+        assertFalse(scheduler.scheduleIfAbsent(PLAYER, owner, 0, record(log, "render", 1)));
+
+        scheduler.tick();
+        assertTrue(log.isEmpty());
+        scheduler.tick();
+        assertEquals(Collections.singletonList("spawn"), log);
+
+        assertTrue(scheduler.scheduleIfAbsent(PLAYER, owner, 0, record(log, "render", 1)));
+        scheduler.tick();
+        assertEquals(2, log.size());
+        assertEquals("render", log.get(1));
+    }
+
+    @Test
+    public void jobsOverBudgetAreCarriedOverToNextTicks() {
+        TestPacketScheduler scheduler = new TestPacketScheduler(4*PACKET_SIZE);
+        List<String> log = new ArrayList<>();
+        for (int i=6; i>=1; i--) {
+            scheduler.schedule(PLAYER, new FakeEntity() {}, i, record(log, "job" + i, 2));
+        }
+
+        // Closest jobs are sent first, as many as fit in the budget of each tick
+        scheduler.tick();
+        assertEquals(2, log.size());
+        assertEquals("job1", log.get(0));
+        assertEquals("job2", log.get(1));
+        assertEquals(4, scheduler.getNumOfPendingJobs());
+
+        // Packets that must not be delayed do not count towards the budget
+        scheduler.send(PLAYER, getPackets(10));
+        scheduler.tick();
+        assertEquals(4, log.size());
+        assertEquals("job3", log.get(2));
+        assertEquals("job4", log.get(3));
+        assertEquals(14, (int) scheduler.sentBatches.get(1));
+
+        scheduler.tick();
+        assertEquals(6, log.size());
+        assertEquals(0, scheduler.getNumOfPendingJobs());
+        scheduler.tick();
+        assertEquals(3, scheduler.sentBatches.size());
+    }
+
+    @Test
+    public void jobsLargerThanBudgetAreNotStarved() {
+        TestPacketScheduler scheduler = new TestPacketScheduler(4*PACKET_SIZE);
+        List<String> log = new ArrayList<>();
+        scheduler.schedule(PLAYER, new FakeEntity() {}, 1, record(log, "large", 10));
+        scheduler.schedule(PLAYER, new FakeEntity() {}, 2, record(log, "small", 1));
+
+        scheduler.tick();
+        assertEquals(Collections.singletonList("large"), log);
+        scheduler.tick();
+        assertEquals(2, log.size());
+    }
+
+    @Test
+    public void jobsWaitForWritableConnection() {
+        TestPacketScheduler scheduler = new TestPacketScheduler(0);
+        List<String> log = new ArrayList<>();
+        scheduler.schedule(PLAYER, new FakeEntity() {}, 1, record(log, "job", 1));
+        scheduler.send(PLAYER, getPackets(3));
+
+        scheduler.writable = false;
+        scheduler.tick();
+        assertTrue(log.isEmpty());
+        assertEquals(Collections.singletonList(3), scheduler.sentBatches);
+
+        scheduler.writable = true;
+        scheduler.tick();
+        assertEquals(Collections.singletonList("job"), log);
+    }
+
+    @Test
+    public void overlappingTicksAreSkipped() {
+        List<String> log = new ArrayList<>();
+        TestPacketScheduler scheduler = new TestPacketScheduler(0) {
+            @Override
+            void sendPackets(@NotNull Player player, @NotNull List<PacketContainer> packets) {
+                super.sendPackets(player, packets);
+                tick(); // Simulates a tick fired while the previous one is still sending
+            }
+        };
+        scheduler.schedule(PLAYER, new FakeEntity() {}, 1, record(log, "first", 1));
+        scheduler.schedule(PLAYER, new FakeEntity() {}, 1, 2, record(log, "delayed", 1));
+
+        scheduler.tick();
+        assertEquals(Collections.singletonList("first"), log);
+        assertEquals(1, scheduler.sentBatches.size());
+        assertEquals(1, scheduler.getNumOfPendingJobs());
+
+        scheduler.tick();
+        assertEquals(2, log.size());
+        assertEquals(2, scheduler.sentBatches.size());
+    }
+}
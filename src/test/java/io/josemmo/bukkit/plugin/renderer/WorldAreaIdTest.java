@@ -0,0 +1,122 @@
+package io.josemmo.bukkit.plugin.renderer;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorldAreaIdTest {
+    private static final int CHUNKS_PER_AREA = 4;
+
+    /**
+     * Is world area in view distance (brute-force implementation)
+     * @param  dx     World area X offset from center world area
+     * @param  dz     World area Z offset from center world area
+     * @param  radius Radius in chunks
+     * @return        Whether any chunk of the world area is inside a circle around any chunk of the center area
+     */
+    private static boolean isInViewDistance(int dx, int dz, int radius) {
+        for (int fromX=0; fromX<CHUNKS_PER_AREA; fromX++) {
+            for (int fromZ=0; fromZ<CHUNKS_PER_AREA; fromZ++) {
+                for (int toX=0; toX<CHUNKS_PER_AREA; toX++) {
+                    for (int toZ=0; toZ<CHUNKS_PER_AREA; toZ++) {
+                        int chunkDx = dx*CHUNKS_PER_AREA + toX - fromX;
+                        int chunkDz = dz*CHUNKS_PER_AREA + toZ - fromZ;
+                        if (chunkDx*chunkDx + chunkDz*chunkDz <= radius*radius) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static @NotNull Set<Long> toSet(@NotNull int[] offsets, int centerX, int centerZ) {
+        Set<Long> response = new HashSet<>();
+        for (int i=0; i<offsets.length; i+=2) {
+            assertTrue(response.add(WorldAreaId.pack(centerX+offsets[i], centerZ+offsets[i+1])), "Duplicated offset");
+        }
+        return response;
+    }
+
+    @Test
+    public void packedCoordinatesRoundTrip() {
+        int[] values = new int[] {0, 1, -1, 123456, -123456, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int x : values) {
+            for (int z : values) {
+                long id = WorldAreaId.pack(x, z);
+                assertEquals(x, WorldAreaId.getX(id));
+                assertEquals(z, WorldAreaId.getZ(id));
+            }
+        }
+    }
+
+    @Test
+    public void blockCoordinatesAreFloored() {
+        assertEquals(WorldAreaId.pack(0, 0), WorldAreaId.fromBlock(0, 63));
+        assertEquals(WorldAreaId.pack(1, -1), WorldAreaId.fromBlock(64, -1));
+        assertEquals(WorldAreaId.pack(-1, -2), WorldAreaId.fromBlock(-64, -65));
+    }
+
+    @Test
+    public void neighborhoodsMatchBruteForce() {
+        int maxDelta = WorldAreaId.MAX_RADIUS/CHUNKS_PER_AREA + 2;
+        for (int radius=0; radius<=WorldAreaId.MAX_RADIUS; radius++) {
+            Set<Long> expected = new HashSet<>();
+            for (int dx=-maxDelta; dx<=maxDelta; dx++) {
+                for (int dz=-maxDelta; dz<=maxDelta; dz++) {
+                    boolean inViewDistance = isInViewDistance(dx, dz, radius);
+                    if (inViewDistance) {
+                        expected.add(WorldAreaId.pack(dx, dz));
+                    }
+                    assertEquals(
+                        inViewDistance,
+                        WorldAreaId.isInNeighborhood(WorldAreaId.pack(0, 0), WorldAreaId.pack(dx, dz), radius),
+                        "Offset (" + dx + "," + dz + ") for radius " + radius
+                    );
+                }
+            }
+            assertTrue(expected.contains(WorldAreaId.pack(0, 0)));
+            assertEquals(expected, toSet(WorldAreaId.getNeighborhoodOffsets(radius), 0, 0), "Radius " + radius);
+        }
+    }
+
+    @Test
+    public void edgeOffsetsMatchNeighborhoodDifference() {
+        int oldX = -7;
+        int oldZ = 11;
+        for (int radius=0; radius<=WorldAreaId.MAX_RADIUS; radius++) {
+            int[] offsets = WorldAreaId.getNeighborhoodOffsets(radius);
+            Set<Long> oldNeighborhood = toSet(offsets, oldX, oldZ);
+            for (int dx=-1; dx<=1; dx++) {
+                for (int dz=-1; dz<=1; dz++) {
+                    int newX = oldX + dx;
+                    int newZ = oldZ + dz;
+                    Set<Long> newNeighborhood = toSet(offsets, newX, newZ);
+
+                    Set<Long> expectedEntered = new HashSet<>(newNeighborhood);
+                    expectedEntered.removeAll(oldNeighborhood);
+                    int[] entered = WorldAreaId.getEnteredOffsets(radius, dx, dz);
+                    assertNotNull(entered);
+                    assertEquals(expectedEntered, toSet(entered, newX, newZ), "Entered " + dx + "," + dz);
+
+                    Set<Long> expectedExited = new HashSet<>(oldNeighborhood);
+                    expectedExited.removeAll(newNeighborhood);
+                    int[] exited = WorldAreaId.getExitedOffsets(radius, dx, dz);
+                    assertNotNull(exited);
+                    assertEquals(expectedExited, toSet(exited, oldX, oldZ), "Exited " + dx + "," + dz);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void edgeOffsetsAreOnlyAvailableForAdjacentAreas() {
+        assertEquals(0, WorldAreaId.getEnteredOffsets(8, 0, 0).length);
+        assertEquals(0, WorldAreaId.getExitedOffsets(8, 0, 0).length);
+        assertNull(WorldAreaId.getEnteredOffsets(8, 2, 0));
+        assertNull(WorldAreaId.getExitedOffsets(8, 0, -2));
+    }
+}
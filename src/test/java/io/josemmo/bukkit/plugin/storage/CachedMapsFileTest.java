@@ -0,0 +1,71 @@
+package io.josemmo.bukkit.plugin.storage;
+
+import io.josemmo.bukkit.plugin.renderer.FakeMap;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachedMapsFileTest {
+    private static @NotNull FakeMap getMap(int color) {
+        byte[] pixels = new byte[FakeMap.DIMENSION*FakeMap.DIMENSION];
+        pixels[0] = (byte) color;
+        return new FakeMap(pixels);
+    }
+
+    private static @NotNull FakeMap[] getSteps(int... colors) {
+        FakeMap[] steps = new FakeMap[colors.length];
+        for (int step=0; step<colors.length; step++) {
+            steps[step] = getMap(colors[step]);
+        }
+        return steps;
+    }
+
+    @Test
+    public void staticTilesShareSingleMap() {
+        FakeMap[] steps = getSteps(1, 1, 1);
+        int numOfStaticTiles = CachedMapsFile.deduplicateSteps(new FakeMap[][][] {{steps}});
+        assertEquals(1, numOfStaticTiles);
+        assertSame(steps[0], steps[1]);
+        assertSame(steps[0], steps[2]);
+    }
+
+    @Test
+    public void consecutiveIdenticalStepsAreMerged() {
+        FakeMap[] steps = getSteps(1, 2, 2, 3);
+        FakeMap originalLastStep = steps[3];
+        int numOfStaticTiles = CachedMapsFile.deduplicateSteps(new FakeMap[][][] {{steps}});
+        assertEquals(0, numOfStaticTiles);
+        assertNotSame(steps[0], steps[1]);
+        assertSame(steps[1], steps[2]);
+        assertSame(originalLastStep, steps[3]);
+    }
+
+    @Test
+    public void nonConsecutiveIdenticalStepsAreKept() {
+        FakeMap[] steps = getSteps(1, 2, 1);
+        int numOfStaticTiles = CachedMapsFile.deduplicateSteps(new FakeMap[][][] {{steps}});
+        assertEquals(0, numOfStaticTiles);
+        assertNotSame(steps[0], steps[1]);
+        assertNotSame(steps[1], steps[2]);
+        assertNotSame(steps[0], steps[2]);
+    }
+
+    @Test
+    public void staticTilesAreCountedAcrossMatrix() {
+        FakeMap[][][] maps = new FakeMap[][][] {
+            {getSteps(1, 1), getSteps(1, 2)},
+            {getSteps(3, 3), getSteps(4, 4)},
+        };
+        assertEquals(3, CachedMapsFile.deduplicateSteps(maps));
+        assertSame(maps[0][0][0], maps[0][0][1]);
+        assertNotSame(maps[0][1][0], maps[0][1][1]);
+        assertSame(maps[1][0][0], maps[1][0][1]);
+        assertSame(maps[1][1][0], maps[1][1][1]);
+    }
+
+    @Test
+    public void singleStepTilesAreStatic() {
+        FakeMap[][][] maps = new FakeMap[][][] {{getSteps(1), getSteps(2)}};
+        assertEquals(2, CachedMapsFile.deduplicateSteps(maps));
+    }
+}
@@ -0,0 +1,228 @@
+package io.josemmo.bukkit.plugin.storage;
+
+import io.josemmo.bukkit.plugin.renderer.FakeImage;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Rotation;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderQueueTest {
+    private static final World WORLD = createProxy(World.class);
+    private static final OfflinePlayer PLAYER = createProxy(OfflinePlayer.class);
+
+    private static <T> @NotNull T createProxy(@NotNull Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(
+            type.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "getName":
+                        return "world";
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        ));
+    }
+
+    private static @NotNull ImageFile createFile(@NotNull String filename) {
+        return new ImageFile(filename, Paths.get(filename)) {
+            @Override
+            public long getRenderCost(int width, int height) {
+                return 1024L * width * height;
+            }
+        };
+    }
+
+    private static @NotNull FakeImage createImage(@NotNull String filename, int width, int height) {
+        Location location = new Location(WORLD, 0, 64, 0);
+        return new FakeImage(filename, location, BlockFace.UP, Rotation.NONE, width, height, null, PLAYER, 0);
+    }
+
+    /**
+     * Render executor that only runs tasks when told to
+     */
+    private static class ManualExecutor implements Executor {
+        private final Deque<Runnable> tasks = new ArrayDeque<>();
+        private boolean rejecting = false;
+
+        @Override
+        public void execute(@NotNull Runnable task) {
+            if (rejecting) {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        }
+
+        private void runNext() {
+            Runnable task = tasks.poll();
+            assertNotNull(task, "No task was started");
+            task.run();
+        }
+    }
+
+    /**
+     * Render queue that captures retries instead of scheduling them
+     */
+    private static class TestRenderQueue extends RenderQueue {
+        private final List<Runnable> retries = new ArrayList<>();
+
+        private TestRenderQueue(int maxConcurrentRenders, @NotNull Executor renderExecutor) {
+            super(maxConcurrentRenders, 0, Runnable::run, renderExecutor);
+        }
+
+        @Override
+        void scheduleRetry(@NotNull Runnable task) {
+            retries.add(task);
+        }
+    }
+
+    @Test
+    public void jobsForSameFileAndDimensionsAreDeduplicated() {
+        ManualExecutor executor = new ManualExecutor();
+        TestRenderQueue queue = new TestRenderQueue(2, executor);
+        ImageFile file = createFile("a.png");
+        List<String> log = new ArrayList<>();
+
+        queue.submit(file, createImage("a.png", 2, 2), RenderQueue.Priority.NORMAL, 100, () -> log.add("first"));
+        queue.submit(file, createImage("a.png", 2, 2), RenderQueue.Priority.NORMAL, 100, () -> log.add("second"));
+        assertEquals(1, executor.tasks.size());
+        assertEquals(1, queue.getNumOfRunningJobs());
+
+        queue.submit(file, createImage("a.png", 3, 2), RenderQueue.Priority.NORMAL, 100, () -> log.add("other"));
+        assertEquals(2, executor.tasks.size());
+
+        executor.runNext();
+        assertEquals(2, log.size());
+        assertTrue(log.contains("first") && log.contains("second"));
+        executor.runNext();
+        assertEquals(3, log.size());
+        assertEquals(0, queue.getNumOfRunningJobs());
+        assertEquals(0, queue.getNumOfQueuedJobs());
+    }
+
+    @Test
+    public void jobsStartByPriorityClassAndWaiters() {
+        ManualExecutor executor = new ManualExecutor();
+        TestRenderQueue queue = new TestRenderQueue(1, executor);
+        List<String> log = new ArrayList<>();
+
+        // Occupy the only render slot
+        queue.submit(createFile("busy.png"), createImage("busy.png", 1, 1), RenderQueue.Priority.NORMAL, 0,
+            () -> log.add("busy"));
+
+        // Queue jobs, then boost the furthest normal one with more waiters
+        ImageFile nearFile = createFile("near.png");
+        ImageFile farFile = createFile("far.png");
+        FakeImage farImage = createImage("far.png", 1, 1);
+        queue.submit(createFile("bg.png"), createImage("bg.png", 1, 1), RenderQueue.Priority.BACKGROUND, 0,
+            () -> log.add("background"));
+        queue.submit(nearFile, createImage("near.png", 1, 1), RenderQueue.Priority.NORMAL, 100, () -> log.add("near"));
+        queue.submit(farFile, farImage, RenderQueue.Priority.NORMAL, 400, () -> log.add("far"));
+        queue.submit(createFile("placed.png"), createImage("placed.png", 1, 1), RenderQueue.Priority.INTERACTIVE, 900,
+            () -> log.add("interactive"));
+        queue.boost(farFile, farImage, 400);
+        queue.boost(farFile, farImage, 400);
+        assertEquals(4, queue.getNumOfQueuedJobs());
+        assertEquals(3, queue.getNumOfQueuedUrgentJobs());
+
+        // Boosting an image that is not waiting has no effect
+        queue.boost(nearFile, createImage("near.png", 1, 1), 0);
+
+        for (int i=0; i<5; i++) {
+            executor.runNext();
+        }
+        assertEquals(5, log.size());
+        assertEquals("busy", log.get(0));
+        assertEquals("interactive", log.get(1));
+        assertEquals("far", log.get(2));
+        assertEquals("near", log.get(3));
+        assertEquals("background", log.get(4));
+    }
+
+    @Test
+    public void cancelledJobsAreNotRun() {
+        ManualExecutor executor = new ManualExecutor();
+        TestRenderQueue queue = new TestRenderQueue(1, executor);
+        List<String> log = new ArrayList<>();
+
+        ImageFile runningFile = createFile("running.png");
+        FakeImage runningImage = createImage("running.png", 1, 1);
+        FakeImage otherRunningImage = createImage("running.png", 1, 1);
+        queue.submit(runningFile, runningImage, RenderQueue.Priority.NORMAL, 0, () -> log.add("running"));
+        queue.submit(runningFile, otherRunningImage, RenderQueue.Priority.NORMAL, 0, () -> log.add("other"));
+
+        ImageFile queuedFile = createFile("queued.png");
+        FakeImage queuedImage = createImage("queued.png", 1, 1);
+        queue.submit(queuedFile, queuedImage, RenderQueue.Priority.NORMAL, 0, () -> log.add("queued"));
+        assertEquals(1, queue.getNumOfQueuedJobs());
+
+        assertTrue(queue.cancel(queuedFile, queuedImage));
+        assertFalse(queue.cancel(queuedFile, queuedImage));
+        assertEquals(0, queue.getNumOfQueuedJobs());
+
+        // Callbacks of a running job can still be cancelled until they start
+        assertTrue(queue.cancel(runningFile, otherRunningImage));
+        executor.runNext();
+        assertEquals(1, log.size());
+        assertEquals("running", log.get(0));
+        assertTrue(executor.tasks.isEmpty());
+        assertEquals(0, queue.getNumOfRunningJobs());
+    }
+
+    @Test
+    public void rejectedJobsAreRetried() {
+        ManualExecutor executor = new ManualExecutor();
+        TestRenderQueue queue = new TestRenderQueue(2, executor);
+        List<String> log = new ArrayList<>();
+
+        executor.rejecting = true;
+        queue.submit(createFile("a.png"), createImage("a.png", 1, 1), RenderQueue.Priority.NORMAL, 0,
+            () -> log.add("a"));
+        queue.submit(createFile("b.png"), createImage("b.png", 1, 1), RenderQueue.Priority.NORMAL, 0,
+            () -> log.add("b"));
+        assertEquals(1, queue.retries.size(), "Only one retry must be pending at a time");
+        assertEquals(2, queue.getNumOfQueuedJobs());
+        assertEquals(0, queue.getNumOfRunningJobs());
+        assertEquals(0, queue.getUsedMemory());
+
+        // Retry once the executor has room again
+        executor.rejecting = false;
+        queue.retries.remove(0).run();
+        assertEquals(2, queue.getNumOfRunningJobs());
+        executor.runNext();
+        executor.runNext();
+        assertEquals(2, log.size());
+        assertEquals(0, queue.getNumOfQueuedJobs());
+
+        // No more retries once stopped
+        executor.rejecting = true;
+        queue.submit(createFile("c.png"), createImage("c.png", 1, 1), RenderQueue.Priority.NORMAL, 0,
+            () -> log.add("c"));
+        assertEquals(1, queue.retries.size());
+        queue.retries.remove(0).run();
+        assertEquals(1, queue.retries.size(), "Rejected retries must be retried again");
+        queue.stop();
+        queue.retries.remove(0).run();
+        assertTrue(queue.retries.isEmpty());
+        queue.submit(createFile("d.png"), createImage("d.png", 1, 1), RenderQueue.Priority.NORMAL, 0,
+            () -> log.add("d"));
+        assertTrue(queue.retries.isEmpty());
+    }
+}
@@ -0,0 +1,110 @@
+package io.josemmo.bukkit.plugin.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongHashMapTest {
+    private static void assertSameEntries(@NotNull Map<Long, String> expected, @NotNull LongHashMap<String> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected.isEmpty(), map.isEmpty());
+        for (Map.Entry<Long, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()), "Value for key " + entry.getKey());
+        }
+
+        long[] expectedKeys = expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expectedKeys, keys);
+
+        List<String> expectedValues = new ArrayList<>(expected.values());
+        List<String> values = map.values();
+        expectedValues.sort(null);
+        values.sort(null);
+        assertEquals(expectedValues, values);
+    }
+
+    @Test
+    public void putGetAndReplace() {
+        LongHashMap<String> map = new LongHashMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(-1, "b"));
+        assertNull(map.put(Long.MIN_VALUE, "c"));
+        assertNull(map.put(0, "d"));
+        assertEquals("a", map.put(1, "e"));
+
+        assertEquals(4, map.size());
+        assertEquals("e", map.get(1));
+        assertEquals("b", map.get(-1));
+        assertEquals("c", map.get(Long.MIN_VALUE));
+        assertEquals("d", map.get(0));
+        assertNull(map.get(2));
+    }
+
+    @Test
+    public void removeKeepsRemainingEntriesReachable() {
+        // Small key ranges with lots of removals produce long clusters that wrap around the tables
+        Random random = new Random(1234);
+        for (int keyRange : new int[] {8, 40, 1000}) {
+            LongHashMap<String> map = new LongHashMap<>();
+            Map<Long, String> expected = new HashMap<>();
+            for (int i=0; i<20_000; i++) {
+                long key = random.nextInt(keyRange) - keyRange/2;
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(key), map.remove(key), "Removed value for key " + key);
+                } else {
+                    String value = "v" + i;
+                    assertEquals(expected.put(key, value), map.put(key, value), "Replaced value for key " + key);
+                }
+                if (i % 500 == 0) {
+                    assertSameEntries(expected, map);
+                }
+            }
+            assertSameEntries(expected, map);
+        }
+    }
+
+    @Test
+    public void growsAndShrinks() {
+        LongHashMap<String> map = new LongHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (long key=0; key<5_000; key++) {
+            long packedKey = (key << 32) | (key * 31);
+            map.put(packedKey, "v" + key);
+            expected.put(packedKey, "v" + key);
+        }
+        assertSameEntries(expected, map);
+
+        for (long key=0; key<4_990; key++) {
+            long packedKey = (key << 32) | (key * 31);
+            assertEquals("v" + key, map.remove(packedKey));
+            expected.remove(packedKey);
+        }
+        assertSameEntries(expected, map);
+        assertNull(map.remove(0));
+    }
+
+    @Test
+    public void clearRemovesAllEntries() {
+        LongHashMap<String> map = new LongHashMap<>();
+        for (long key=0; key<100; key++) {
+            map.put(key, "v" + key);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.keys().length);
+        assertTrue(map.values().isEmpty());
+        assertNull(map.get(1));
+
+        map.put(1, "a");
+        assertEquals("a", map.get(1));
+        assertEquals(1, map.size());
+    }
+}